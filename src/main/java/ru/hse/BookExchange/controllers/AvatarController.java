@@ -38,6 +38,7 @@ public class AvatarController extends CreatedDatedEntityController<Avatar> {
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id массива аватаров (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - жанные авторизации
    * @return список аватаров
    */
@@ -48,6 +49,7 @@ public class AvatarController extends CreatedDatedEntityController<Avatar> {
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     throw new UnsupportedOperationException(
         "Request rejected to avoid huge data transmission (get picture by id instead).");
@@ -22,10 +22,14 @@ import ru.hse.BookExchange.models.BookBase;
 import ru.hse.BookExchange.models.BookBasePhoto;
 import ru.hse.BookExchange.models.Genre;
 import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.projections.BookBaseView;
+import ru.hse.BookExchange.recommendations.RecommendationEngine;
 import ru.hse.BookExchange.repositories.BookBasePhotoRepository;
 import ru.hse.BookExchange.repositories.BookBaseRepository;
 import ru.hse.BookExchange.repositories.BookRepository;
 import ru.hse.BookExchange.repositories.GenreRepository;
+import ru.hse.BookExchange.search.Suggestion;
+import ru.hse.BookExchange.services.BookBaseSearchService;
 import ru.hse.BookExchange.services.BookBaseService;
 
 /**
@@ -47,6 +51,10 @@ public class BookBaseController extends DatedEntityController<BookBase> {
   private final BookBasePhotoController bookBasePhotoController;
 
   private final BookBaseService bookBaseService;
+  // Сервис поиска книг (bookBase)
+  private final BookBaseSearchService bookBaseSearchService;
+  // Рекомендации (похожесть книг перестраивается при изменении каталога)
+  private final RecommendationEngine recommendationEngine;
 
   BookBasePhotoRepository bookBasePhotoRepository;
 
@@ -55,7 +63,9 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       GenreRepository genreRepository,
       BookBasePhotoController bookBasePhotoController,
       BookBaseService bookBaseService,
-      BookBasePhotoRepository bookBasePhotoRepository) {
+      BookBaseSearchService bookBaseSearchService,
+      BookBasePhotoRepository bookBasePhotoRepository,
+      RecommendationEngine recommendationEngine) {
     super(repository);
     this.repository = repository;
     this.bookRepository = bookRepository;
@@ -63,13 +73,15 @@ public class BookBaseController extends DatedEntityController<BookBase> {
     this.genreRepository = genreRepository;
     this.bookBasePhotoController = bookBasePhotoController;
     this.bookBaseService = bookBaseService;
+    this.bookBaseSearchService = bookBaseSearchService;
     this.bookBasePhotoRepository = bookBasePhotoRepository;
+    this.recommendationEngine = recommendationEngine;
   }
 
   @Override
   @GetMapping("neverFindThis")
   public List<BookBase> all(int skip, int limit, boolean latest,
-      List<Long> ids, Authentication authentication) {
+      List<Long> ids, String after, Authentication authentication) {
     throw new UnsupportedOperationException("How did you find this link?");
   }
 
@@ -92,13 +104,31 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       throw new NullIdException("searchStr (request parameter)");
     }
 
-    var res = repository.searchByAuthor(searchStr, limit, skip);
+    var res = bookBaseSearchService.searchByAuthor(searchStr, limit, skip);
     User user = auth.isUser(authentication);
     // Прячем приватные книги
     res.forEach((b) -> bookBaseService.hidePrivateBooks(b, user));
     return res;
   }
 
+  /**
+   * Возвращает подсказки по введенной части заголовка или автора книги
+   *
+   * @param limit  - сколько вернуть
+   * @param prefix - введенная часть строки поиска
+   * @return подсказки, отсортированные по рейтингу книг
+   */
+  @GetMapping("/suggest")
+  protected List<Suggestion> suggest(
+      @RequestParam(required = false, defaultValue = "10") int limit,
+      @RequestParam(required = false, defaultValue = "") String prefix) {
+    DatedEntityController.checkSkipAndLimit(0, limit);
+    if (prefix.isBlank()) {
+      throw new NullIdException("prefix (request parameter)");
+    }
+    return bookBaseSearchService.suggest(prefix, limit);
+  }
+
   /**
    * Ищет книгу по заголовку
    *
@@ -118,7 +148,7 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       throw new NullIdException("searchStr (request parameter)");
     }
 
-    var res = repository.searchByTitle(searchStr, limit, skip);
+    var res = bookBaseSearchService.searchByTitle(searchStr, limit, skip);
     User user = auth.isUser(authentication);
     // Прячем приватные книги
     res.forEach((b) -> bookBaseService.hidePrivateBooks(b, user));
@@ -144,7 +174,7 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       throw new NullIdException("searchStr (request parameter)");
     }
 
-    var res = repository.searchByText(searchStr, limit, skip);
+    var res = bookBaseSearchService.searchByText(searchStr, limit, skip);
     User user = auth.isUser(authentication);
     // Прячем приватные книги
     res.forEach((b) -> bookBaseService.hidePrivateBooks(b, user));
@@ -160,18 +190,21 @@ public class BookBaseController extends DatedEntityController<BookBase> {
    * @param sortBy         тип сортировки
    * @param ascending      порядок сортировки
    * @param ids            id массива книг (null, если не нужно)
+   * @param after          курсор предыдущей страницы при sortBy=date или
+   *                       sortBy=rate (null, если не нужно)
    * @param latest         отсортировать ли по дате
    * @param recommended    вернуть ли рекомендованные книги
    * @param authentication данные авторизации
    * @return список книг
    */
   @GetMapping()
-  public List<BookBase> all(
+  public List<BookBaseView> all(
       @RequestParam(required = false, defaultValue = "0") int skip,
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "none") String sortBy,
       @RequestParam(required = false, defaultValue = "true") boolean ascending,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
 
       @Deprecated
       @RequestParam(required = false, defaultValue = "false") boolean latest,
@@ -179,7 +212,7 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       @RequestParam(required = false, defaultValue = "false") boolean recommended,
       Authentication authentication) {
     return bookBaseService
-        .all(skip, limit, sortBy, ascending, ids, latest, recommended,
+        .all(skip, limit, sortBy, ascending, ids, after, latest, recommended,
             authentication);
   }
 
@@ -207,6 +240,8 @@ public class BookBaseController extends DatedEntityController<BookBase> {
     }
 
     super.delete(id, authentication);
+    bookBaseSearchService.onDeleted(id);
+    recommendationEngine.onCatalogChanged();
   }
 
   @PostMapping()
@@ -232,6 +267,8 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       bookBasePhotoRepository.save(photo);
     }
 
+    bookBaseSearchService.onSaved(res);
+    recommendationEngine.onCatalogChanged();
     return res;
   }
 
@@ -311,7 +348,10 @@ public class BookBaseController extends DatedEntityController<BookBase> {
       }
     }
 
-    return repository.save(newBookBase);
+    newBookBase = repository.save(newBookBase);
+    bookBaseSearchService.onSaved(newBookBase);
+    recommendationEngine.onCatalogChanged();
+    return newBookBase;
   }
 
 
@@ -1,7 +1,11 @@
 package ru.hse.BookExchange.controllers;
 
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,6 +20,8 @@ import ru.hse.BookExchange.models.User;
 import ru.hse.BookExchange.repositories.BookBaseRateRepository;
 import ru.hse.BookExchange.repositories.BookBaseRepository;
 import ru.hse.BookExchange.repositories.UserRepository;
+import ru.hse.BookExchange.search.BookBaseSuggester;
+import ru.hse.BookExchange.services.BookBaseRatingService;
 
 /**
  * Контроллер для оценок книг
@@ -29,13 +35,20 @@ public class BookBaseRateController extends
   private final BookBaseRepository bookBaseRepository;
   // Репозиторий пользователей
   private final UserRepository userRepository;
+  // Подсказки поиска (упорядочены по рейтингу)
+  private final BookBaseSuggester suggester;
+  // Байесовская оценка книг
+  private final BookBaseRatingService ratingService;
 
   BookBaseRateController(BookBaseRateRepository repository,
       UserRepository userRepository,
-      BookBaseRepository bookBaseRepository) {
+      BookBaseRepository bookBaseRepository,
+      BookBaseSuggester suggester, BookBaseRatingService ratingService) {
     super(repository);
     this.bookBaseRepository = bookBaseRepository;
     this.userRepository = userRepository;
+    this.suggester = suggester;
+    this.ratingService = ratingService;
   }
 
   /**
@@ -47,6 +60,7 @@ public class BookBaseRateController extends
    */
   @Override
   @PostMapping
+  @Transactional
   public BookBaseRate add(@RequestBody BookBaseRate rate,
       Authentication authentication) {
     User user = auth.isUser(authentication);
@@ -71,16 +85,81 @@ public class BookBaseRateController extends
           .orElseThrow(() -> new UserNotFoundException(creatorId)));
     }
 
-    ratedBookBase.addRate(rate);
+    if (rate.getRate() == null) {
+      throw new IllegalArgumentException("Rate must be in range [1;5]!");
+    }
 
-    bookBaseRepository.save(ratedBookBase);
     repository.save(rate);
+    // Сумма и количество оценок меняются в бд одним запросом
+    ratedBookBase = updateRating(ratedBookBaseId, rate.getRate(), 1);
 
     // Подменяем значение
-    rate.setRate(rate.getRatedBookBase().getRating());
+    rate.setRate(ratedBookBase.getRating());
     return rate;
   }
 
+  /**
+   * Заменяет оценку книги в бд
+   *
+   * @param newRate        - новая оценка
+   * @param id             - id оценки
+   * @param authentication - данные аутентификации
+   * @return сохраненная новая оценка
+   */
+  @Override
+  @PutMapping("/{id}")
+  @Transactional
+  public BookBaseRate replace(@RequestBody BookBaseRate newRate,
+      @PathVariable Long id, Authentication authentication) {
+    BookBaseRate oldRate = getById(id, authentication);
+    Long oldBookBaseId = oldRate.getRatedBookBaseId();
+    Float oldValue = oldRate.getRate();
+
+    BookBaseRate res = super.replace(newRate, id, authentication);
+    if (oldBookBaseId.equals(res.getRatedBookBaseId())) {
+      // Та же книга: количество оценок не меняется
+      updateRating(oldBookBaseId, res.getRate() - oldValue, 0);
+    } else {
+      updateRating(oldBookBaseId, -oldValue, -1);
+      updateRating(res.getRatedBookBaseId(), res.getRate(), 1);
+    }
+    return res;
+  }
+
+  /**
+   * Удаляет оценку книги из бд
+   *
+   * @param id             - id оценки
+   * @param authentication - данные аутентификации
+   */
+  @Override
+  @DeleteMapping("/{id}")
+  @Transactional
+  public void delete(@PathVariable Long id, Authentication authentication) {
+    BookBaseRate rate = getById(id, authentication);
+    Long ratedBookBaseId = rate.getRatedBookBaseId();
+    Float value = rate.getRate();
+
+    super.delete(id, authentication);
+    updateRating(ratedBookBaseId, -value, -1);
+  }
+
+  /**
+   * Изменяет сумму и количество оценок книги и обновляет ее в подсказках
+   *
+   * @param bookBaseId - id книги
+   * @param delta      - на сколько изменить сумму оценок
+   * @param count      - на сколько изменить количество оценок
+   * @return книга с новым рейтингом
+   */
+  private BookBase updateRating(Long bookBaseId, double delta, int count) {
+    ratingService.updateRating(bookBaseId, delta, count);
+    BookBase bookBase = bookBaseRepository.findById(bookBaseId)
+        .orElseThrow(() -> new BookBaseNotFoundException(bookBaseId));
+    suggester.updateRank(bookBase);
+    return bookBase;
+  }
+
 }
 
 
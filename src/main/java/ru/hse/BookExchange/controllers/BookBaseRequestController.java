@@ -22,10 +22,12 @@ import ru.hse.BookExchange.models.BookBaseRequest;
 import ru.hse.BookExchange.models.Genre;
 import ru.hse.BookExchange.models.User;
 import ru.hse.BookExchange.models.abstractions.Request.RequestStatus;
+import ru.hse.BookExchange.recommendations.RecommendationEngine;
 import ru.hse.BookExchange.repositories.BookBaseRepository;
 import ru.hse.BookExchange.repositories.BookBaseRequestRepository;
 import ru.hse.BookExchange.repositories.BookRepository;
 import ru.hse.BookExchange.repositories.GenreRepository;
+import ru.hse.BookExchange.services.BookBaseSearchService;
 
 /**
  * Контроллер для запросов на добавление книг (bookBase)
@@ -45,18 +47,26 @@ public class BookBaseRequestController extends
   private final GenreController genreController;
   // Репозиторий книг для передачи
   private final BookRepository bookRepository;
+  // Сервис поиска книг (bookBase)
+  private final BookBaseSearchService bookBaseSearchService;
+  // Рекомендации (похожесть книг перестраивается при изменении каталога)
+  private final RecommendationEngine recommendationEngine;
 
   BookBaseRequestController(BookBaseRequestRepository repository,
       BookBaseRepository bookBaseRepository, GenreRepository genreRepository,
       BookBaseController bookBaseController,
       BookRepository bookRepository,
-      GenreController genreController) {
+      GenreController genreController,
+      BookBaseSearchService bookBaseSearchService,
+      RecommendationEngine recommendationEngine) {
     super(repository);
     this.bookBaseRepository = bookBaseRepository;
     this.genreRepository = genreRepository;
     this.bookBaseController = bookBaseController;
     this.bookRepository = bookRepository;
     this.genreController = genreController;
+    this.bookBaseSearchService = bookBaseSearchService;
+    this.recommendationEngine = recommendationEngine;
   }
 
   /**
@@ -159,6 +169,8 @@ public class BookBaseRequestController extends
 
     bookBase.setGenres(genres);
     bookBaseRepository.save(bookBase);
+    bookBaseSearchService.onSaved(bookBase);
+    recommendationEngine.onCatalogChanged();
 
     // Обновим статус запроса
     request.setStatus(RequestStatus.Accepted);
@@ -70,6 +70,7 @@ public class BookController extends CreatedDatedEntityController<Book> {
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id массива книг (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список книг для обмена (book)
    */
@@ -80,23 +81,18 @@ public class BookController extends CreatedDatedEntityController<Book> {
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     User user = auth.isUser(authentication);
-    List<Book> res = super.all(skip, limit, latest, ids, authentication);
-
-    if (user.getRole().hasModeratorPermits()) {
-      return res;
-    }
-    
-    if (ids == null) {
-      // Видеть можно только книги открытые для обмена книги (а также свои закрытые)
-      res = res.stream()
-          .filter(book -> book.getPublicityStatus() == PublicityStatus.Public ||
-              book.getOwnerId().equals(user.getId()))
-          .collect(Collectors.toList());
+    if (ids != null || user.getRole().hasModeratorPermits()) {
+      return super.all(skip, limit, latest, ids, after, authentication);
     }
 
-    return res;
+    // Видеть можно только книги открытые для обмена книги (а также свои закрытые)
+    return findPage(skip, limit, latest, after,
+        (book, query, builder) -> builder.or(
+            builder.equal(book.get("publicityStatus"), PublicityStatus.Public),
+            builder.equal(book.get("owner"), user)));
   }
 
   /**
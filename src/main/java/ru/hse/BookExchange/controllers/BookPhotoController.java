@@ -44,6 +44,7 @@ public class BookPhotoController extends
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id массива фотографий (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список фотографий  книг для обмена (book)
    */
@@ -54,6 +55,7 @@ public class BookPhotoController extends
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     throw new UnsupportedOperationException(
         "Request rejected to avoid huge data transmission (get picture by id instead).");
@@ -37,6 +37,7 @@ public class ComplaintController extends
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id жалоб (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список жалоб
    */
@@ -48,9 +49,11 @@ public class ComplaintController extends
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false, defaultValue = "false") boolean pendingOnly,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     auth.isModerator(authentication);
-    return super.all(skip, limit, latest, pendingOnly, ids, authentication);
+    return super
+        .all(skip, limit, latest, pendingOnly, ids, after, authentication);
   }
 
   /**
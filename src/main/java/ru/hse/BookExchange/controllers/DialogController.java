@@ -50,6 +50,7 @@ public class DialogController extends DatedEntityController<Dialog> {
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id диалогов (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список диалогов
    */
@@ -60,20 +61,23 @@ public class DialogController extends DatedEntityController<Dialog> {
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     User user = auth.isUser(authentication);
-    List<Dialog> res = super.all(skip, limit, latest, ids, authentication);
-
     if (user.getRole().hasModeratorPermits()) {
-      return res;
+      return super.all(skip, limit, latest, ids, after, authentication);
     }
 
     // Пользователь может видеть только свои диалоги
-    res = res.stream()
-        .filter(dialog -> dialog.getParticipants().contains(user))
-        .collect(Collectors.toList());
-
-    return res;
+    if (ids != null) {
+      return super.all(skip, limit, latest, ids, after, authentication)
+          .stream()
+          .filter(dialog -> dialog.getParticipants().contains(user))
+          .collect(Collectors.toList());
+    }
+    return findPage(skip, limit, latest, after,
+        (dialog, query, builder) -> builder
+            .isMember(user, dialog.get("participants")));
   }
 
   /**
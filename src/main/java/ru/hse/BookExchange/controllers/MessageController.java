@@ -50,6 +50,7 @@ public class MessageController extends CreatedDatedEntityController<Message> {
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id сообщений (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список сообщений
    */
@@ -60,22 +61,26 @@ public class MessageController extends CreatedDatedEntityController<Message> {
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     User user = auth.isUser(authentication);
-    List<Message> res = super.all(skip, limit, latest, ids, authentication);
-
     if (user.getRole().hasModeratorPermits()) {
-      return res;
+      return super.all(skip, limit, latest, ids, after, authentication);
     }
 
     /* Пользователь может видеть только те сообщения, что были отправлены им
        или были адресованы ему */
-    res = res.stream()
-        .filter(message -> message.getCreator() == user
-            || message.getReceiver() == user)
-        .collect(Collectors.toList());
-
-    return res;
+    if (ids != null) {
+      return super.all(skip, limit, latest, ids, after, authentication)
+          .stream()
+          .filter(message -> message.getCreator() == user
+              || message.getReceiver() == user)
+          .collect(Collectors.toList());
+    }
+    return findPage(skip, limit, latest, after,
+        (message, query, builder) -> builder.or(
+            builder.equal(message.get("creator"), user),
+            builder.equal(message.get("receiver"), user)));
   }
 
   /**
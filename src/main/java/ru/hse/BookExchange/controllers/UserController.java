@@ -1,6 +1,8 @@
 package ru.hse.BookExchange.controllers;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,7 +14,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.hse.BookExchange.controllers.abstractions.DatedEntityController;
+import ru.hse.BookExchange.controllers.abstractions.PageCursor;
 import ru.hse.BookExchange.exceptions.BookBaseNotFoundException;
+import ru.hse.BookExchange.exceptions.EntityNotFoundException;
 import ru.hse.BookExchange.exceptions.ForbiddenException;
 import ru.hse.BookExchange.exceptions.NullIdException;
 import ru.hse.BookExchange.exceptions.UserNotFoundException;
@@ -20,8 +24,12 @@ import ru.hse.BookExchange.models.BookBase;
 import ru.hse.BookExchange.models.Town;
 import ru.hse.BookExchange.models.User;
 import ru.hse.BookExchange.models.User.Role;
+import ru.hse.BookExchange.models.projections.UserView;
 import ru.hse.BookExchange.repositories.BookBaseRepository;
 import ru.hse.BookExchange.repositories.UserRepository;
+import ru.hse.BookExchange.search.BookBaseSuggester;
+import ru.hse.BookExchange.services.BookBaseService;
+import ru.hse.BookExchange.services.UserService;
 
 /**
  * Контроллер пользователей
@@ -35,12 +43,27 @@ public class UserController extends DatedEntityController<User> {
 
   TownController townController;
 
+  // Подсказки поиска (упорядочены по количеству добавивших в избранное)
+  private final BookBaseSuggester suggester;
+
+  // Сервис книг (рекомендации зависят от избранного)
+  private final BookBaseService bookBaseService;
+
+  // Сервис пользователей (выборки для списков)
+  private final UserService userService;
+
   UserController(UserRepository repository,
       BookBaseRepository bookBaseRepository,
-      TownController townController) {
+      TownController townController,
+      BookBaseSuggester suggester,
+      BookBaseService bookBaseService,
+      UserService userService) {
     super(repository);
     this.bookBaseRepository = bookBaseRepository;
     this.townController = townController;
+    this.suggester = suggester;
+    this.bookBaseService = bookBaseService;
+    this.userService = userService;
   }
 
   /**
@@ -55,6 +78,13 @@ public class UserController extends DatedEntityController<User> {
   }
 
 
+  @Override
+  @GetMapping("neverFindThis")
+  public List<User> all(int skip, int limit, boolean latest,
+      List<Long> ids, String after, Authentication authentication) {
+    throw new UnsupportedOperationException("How did you find this link?");
+  }
+
   /**
    * Возвращает список пользователей
    *
@@ -62,24 +92,37 @@ public class UserController extends DatedEntityController<User> {
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id массива пользователей (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список пользователей
    */
-  @Override
   @GetMapping()
-  public List<User> all(
+  public List<UserView> views(
       @RequestParam(required = false, defaultValue = "0") int skip,
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     User requestingUser = auth.isUser(authentication);
-    List<User> res = super.all(skip, limit, latest, ids, authentication);
-    if (requestingUser.getRole().hasModeratorPermits()) {
+    if (ids != null) {
+      List<UserView> res = userService.getViews(ids, requestingUser);
+      Set<Long> found = res.stream().map(UserView::getId)
+          .collect(Collectors.toSet());
+      List<Long> missing = ids.stream().filter(id -> !found.contains(id))
+          .collect(Collectors.toList());
+      if (!missing.isEmpty()) {
+        throw new EntityNotFoundException("entity", missing);
+      }
       return res;
     }
-    // Удаляем все приватные книги
-    res.forEach(User::switchExchangeListToPublic);
+
+    List<UserView> res = userService.getViews(
+        findPageIds(skip, limit, latest, after, null), requestingUser);
+    if (after != null) {
+      PageCursor.setNext(res, limit, user -> new PageCursor(
+          user.getCreationDate().getTime(), user.getId()));
+    }
     return res;
   }
 
@@ -118,11 +161,17 @@ public class UserController extends DatedEntityController<User> {
     User user = auth.isUser(authentication);
 
     BookBase bookBase = bookBaseRepository.getOne(baseId);
+    // Повторное добавление не меняет рекомендации
+    boolean changed = !user.getWishListIds().contains(baseId);
     user.addToWishList(bookBase);
     bookBase.addWisher(user);
 
     bookBaseRepository.save(bookBase);
     repository.save(user);
+    suggester.updateRank(bookBase);
+    if (changed) {
+      bookBaseService.onWishListChanged(user, bookBase, true);
+    }
   }
 
   /**
@@ -138,11 +187,16 @@ public class UserController extends DatedEntityController<User> {
     User user = auth.isUser(authentication);
 
     BookBase bookBase = bookBaseRepository.getOne(baseId);
+    boolean changed = user.getWishListIds().contains(baseId);
     user.removeFromWishList(bookBase);
     bookBase.removeWisher(user);
 
     bookBaseRepository.save(bookBase);
     repository.save(user);
+    suggester.updateRank(bookBase);
+    if (changed) {
+      bookBaseService.onWishListChanged(user, bookBase, false);
+    }
   }
 
   /**
@@ -30,8 +30,8 @@ public abstract class CreatedDatedRequestController<T extends DatedEntity
   @Override
   @GetMapping("dontUseThisMapping")
   public List<T> all(int skip, int limit, boolean latest, List<Long> ids,
-      Authentication authentication) {
-    return super.all(skip, limit, latest, ids, authentication);
+      String after, Authentication authentication) {
+    return super.all(skip, limit, latest, ids, after, authentication);
   }
 
   /**
@@ -41,6 +41,7 @@ public abstract class CreatedDatedRequestController<T extends DatedEntity
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id записей в бд (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (null, если не нужно)
    * @param authentication - данные авторизации
    * @return список записей в бд
    */
@@ -51,14 +52,20 @@ public abstract class CreatedDatedRequestController<T extends DatedEntity
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false, defaultValue = "false") boolean pendingOnly,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
-    List<T> res = super.all(skip, limit, latest, ids, authentication);
-    if (pendingOnly) {
-      res = res.stream()
+    if (!pendingOnly) {
+      return super.all(skip, limit, latest, ids, after, authentication);
+    }
+    if (ids != null) {
+      return super.all(skip, limit, latest, ids, after, authentication)
+          .stream()
           .filter(req -> req.getStatus().equals(RequestStatus.Pending))
           .collect(Collectors.toList());
     }
-    return res;
+    return findPage(skip, limit, latest, after,
+        (req, query, builder) -> builder
+            .equal(req.get("status"), RequestStatus.Pending));
   }
 
   /**
@@ -1,12 +1,13 @@
 package ru.hse.BookExchange.controllers.abstractions;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +23,7 @@ import ru.hse.BookExchange.models.User;
 import ru.hse.BookExchange.models.abstractions.DatedEntity;
 import ru.hse.BookExchange.repositories.ComplaintRepository;
 import ru.hse.BookExchange.repositories.DatedEntityRepository;
+import ru.hse.BookExchange.repositories.OffsetPageRequest;
 
 /**
  * Контроллер для записей с датой создания
@@ -43,6 +45,12 @@ public abstract class DatedEntityController<T extends DatedEntity> {
 
   public DatedEntityController(DatedEntityRepository<T> repository) {
     this.repository = repository;
+    // Перенос полей для PUT собирается при запуске, а не при первом запросе
+    Class<?> type = GenericTypeResolver
+        .resolveTypeArgument(getClass(), DatedEntityController.class);
+    if (type != null) {
+      FieldMerger.of(type);
+    }
   }
 
 
@@ -53,6 +61,8 @@ public abstract class DatedEntityController<T extends DatedEntity> {
    * @param limit          - сколько вернуть
    * @param latest         - отсортировать ли по дате
    * @param ids            - id записей в бд (null, если не нужно)
+   * @param after          - курсор предыдущей страницы (пустой - первая
+   *                       страница, null - листать по skip)
    * @param authentication - данные авторизации
    * @return список записей в бд
    */
@@ -62,27 +72,101 @@ public abstract class DatedEntityController<T extends DatedEntity> {
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "false") boolean latest,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
       Authentication authentication) {
     if (ids != null) {
-      List<T> res = new ArrayList<>(ids.size());//repository.findAllById(ids);
-      // Чтобы гарантировать ту же последовательность id приходится собирать вручную
-      for (int i = 0; i < ids.size(); i++) {
-        final int finalI = i;
-        res.add(repository.findById(ids.get(i))
-            .orElseThrow(() -> new EntityNotFoundException("entity",
-                ids.get(finalI))));
-      }
-
-      return res;
+      // Одна выборка (IN) вместо запроса на каждый id, порядок ids сохраняется
+      return repository.findAllByIdInOrder(ids, "entity");
     }
 
+    return findPage(skip, limit, latest, after, null);
+  }
+
+  /**
+   * Возвращает страницу записей, выбранную и отсортированную в бд
+   *
+   * <p>
+   * С курсором after записи идут от новых к старым, начиная после записи
+   * курсора, а курсор следующей страницы возвращается в заголовке
+   * PageCursor.HEADER.
+   * </p>
+   *
+   * @param skip   - сколько пропустить
+   * @param limit  - сколько вернуть
+   * @param latest - отсортировать ли по дате (сначала новые)
+   * @param after  - курсор предыдущей страницы (null - листать по skip)
+   * @param filter - условие видимости записей (null, если видны все)
+   * @return записи страницы
+   */
+  protected List<T> findPage(int skip, int limit, boolean latest,
+      String after, Specification<T> filter) {
+    checkPage(skip, limit, after);
+    if (limit == 0) {
+      return new ArrayList<>();
+    }
+    List<T> res = repository.findPage(getPageFilter(after, filter),
+        getPageRequest(skip, limit, latest || after != null));
+    if (after != null) {
+      PageCursor.setNext(res, limit, PageCursor::of);
+    }
+    return res;
+  }
+
+  /**
+   * Возвращает id записей страницы (как findPage, но без загрузки записей)
+   *
+   * <p>
+   * Курсор следующей страницы (для after) записывает вызывающий метод, когда
+   * загрузит даты создания записей.
+   * </p>
+   *
+   * @param skip   - сколько пропустить
+   * @param limit  - сколько вернуть
+   * @param latest - отсортировать ли по дате (сначала новые)
+   * @param after  - курсор предыдущей страницы (null - листать по skip)
+   * @param filter - условие видимости записей (null, если видны все)
+   * @return id записей страницы
+   */
+  protected List<Long> findPageIds(int skip, int limit, boolean latest,
+      String after, Specification<T> filter) {
+    checkPage(skip, limit, after);
+    if (limit == 0) {
+      return new ArrayList<>();
+    }
+    return repository.findPageIds(getPageFilter(after, filter),
+        getPageRequest(skip, limit, latest || after != null));
+  }
+
+  // Проверяет skip, limit и after
+  private static void checkPage(int skip, int limit, String after) {
     checkSkipAndLimit(skip, limit);
-    var stream = repository.findAll().stream();
-    if (latest) {
-      stream = stream.sorted(Collections.reverseOrder());
+    if (after != null && skip != 0) {
+      throw new IllegalArgumentException(
+          "skip cannot be used with after argument!");
+    }
+  }
+
+  // Порядок по дате читается по индексу (creation_date, id)
+  private static OffsetPageRequest getPageRequest(int skip, int limit,
+      boolean latest) {
+    Sort order = latest ? Sort.by(Direction.DESC, "creationDate", "id")
+        : Sort.by("id");
+    return new OffsetPageRequest(skip, limit, order);
+  }
+
+  // Добавляет к условию видимости записи после записи курсора
+  private Specification<T> getPageFilter(String after,
+      Specification<T> filter) {
+    PageCursor cursor = after == null ? null : PageCursor.decode(after);
+    if (cursor == null) {
+      return filter;
     }
-    return stream.skip(skip).limit(limit).collect(
-        Collectors.toList());
+    // (creation_date, id) < (дата, id) курсора
+    Date date = cursor.getDate();
+    return Specification.where(filter).and((entity, query, builder) ->
+        builder.or(builder.lessThan(entity.get("creationDate"), date),
+            builder.and(builder.equal(entity.get("creationDate"), date),
+                builder.lessThan(entity.get("id"), cursor.getId()))));
   }
 
   @GetMapping("/{id}")
@@ -135,14 +219,8 @@ public abstract class DatedEntityController<T extends DatedEntity> {
 
     DatedEntity cur = repository.findById(id)
         .orElseThrow(() -> new EntityNotFoundException("entity", id));
-    var fields = newEntity.getClass().getDeclaredFields();
-    migrateFields(newEntity, cur, fields);
-
-    if (newEntity.getClass().getSuperclass().getPackageName()
-        .equals("ru.hse.BookExchange.models")) {
-      fields = newEntity.getClass().getSuperclass().getDeclaredFields();
-      migrateFields(newEntity, cur, fields);
-    }
+    // Незаданные поля новой записи берем из сохраненной
+    FieldMerger.of(newEntity.getClass()).merge(newEntity, cur);
 
     return repository.findById(id)
         .map(entity -> {
@@ -156,22 +234,6 @@ public abstract class DatedEntityController<T extends DatedEntity> {
         });
   }
 
-  protected void migrateFields(DatedEntity newEntity, DatedEntity cur,
-      Field[] fields) {
-    try {
-      for (var field : fields) {
-        field.setAccessible(true);
-        if (field.get(newEntity) == null || (
-            field.get(newEntity) instanceof Collection
-                && ((Collection<?>) field.get(newEntity)).size() == 0)) {
-          field.set(newEntity, field.get(cur));
-        }
-      }
-    } catch (IllegalAccessException ex) {
-      System.out.println("IllegalAccessException");
-    }
-  }
-
   /**
    * Удаляет запись из бд
    *
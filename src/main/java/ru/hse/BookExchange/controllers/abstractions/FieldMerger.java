@@ -0,0 +1,109 @@
+package ru.hse.BookExchange.controllers.abstractions;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Перенос незаданных полей записи из сохраненной записи (для PUT)
+ *
+ * <p>
+ * Для каждого класса записи один раз собираются MethodHandle чтения и
+ * записи его полей, поэтому перенос полей не ищет их через reflection при
+ * каждом запросе. Переносятся нестатические поля самого класса и его
+ * класса-родителя, если тот - запись из того же пакета (BookBase для
+ * BookBaseRequest). Поля абстрактных родителей (DatedEntity, Picture) не
+ * переносятся.
+ * </p>
+ */
+final class FieldMerger {
+
+  // Тип MethodHandle чтения поля: (Object) -> Object
+  private static final MethodType GETTER_TYPE = MethodType
+      .methodType(Object.class, Object.class);
+  // Тип MethodHandle записи поля: (Object, Object) -> void
+  private static final MethodType SETTER_TYPE = MethodType
+      .methodType(void.class, Object.class, Object.class);
+
+  // Перенос полей для каждого класса записи
+  private static final ClassValue<FieldMerger> MERGERS =
+      new ClassValue<>() {
+        @Override
+        protected FieldMerger computeValue(Class<?> type) {
+          return new FieldMerger(type);
+        }
+      };
+
+  // Чтение полей
+  private final MethodHandle[] getters;
+  // Запись полей (в том же порядке)
+  private final MethodHandle[] setters;
+
+  private FieldMerger(Class<?> type) {
+    List<MethodHandle> getters = new ArrayList<>();
+    List<MethodHandle> setters = new ArrayList<>();
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    // Поля класса и его родителя-записи из того же пакета
+    List<Field> fields = new ArrayList<>(
+        Arrays.asList(type.getDeclaredFields()));
+    Class<?> parent = type.getSuperclass();
+    if (parent != null && parent.getPackage() == type.getPackage()) {
+      fields.addAll(Arrays.asList(parent.getDeclaredFields()));
+    }
+    for (Field field : fields) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      field.setAccessible(true);
+      try {
+        getters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+        setters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+      } catch (IllegalAccessException ex) {
+        throw new IllegalStateException(
+            "Cannot access field " + field + " of " + type, ex);
+      }
+    }
+    this.getters = getters.toArray(new MethodHandle[0]);
+    this.setters = setters.toArray(new MethodHandle[0]);
+  }
+
+  /**
+   * Возвращает перенос полей для класса записи
+   *
+   * @param type - класс записи
+   * @return перенос полей
+   */
+  static FieldMerger of(Class<?> type) {
+    return MERGERS.get(type);
+  }
+
+  /**
+   * Заполняет незаданные (null или пустые коллекции) поля новой записи
+   * значениями из сохраненной записи
+   *
+   * @param newEntity - новая запись
+   * @param cur       - сохраненная запись
+   */
+  void merge(Object newEntity, Object cur) {
+    try {
+      for (int i = 0; i < getters.length; i++) {
+        Object value = (Object) getters[i].invokeExact(newEntity);
+        if (value == null || (value instanceof Collection
+            && ((Collection<?>) value).isEmpty())) {
+          Object curValue = (Object) getters[i].invokeExact(cur);
+          setters[i].invokeExact(newEntity, curValue);
+        }
+      }
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Cannot merge entity fields", ex);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package ru.hse.BookExchange.controllers.abstractions;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.hse.BookExchange.models.abstractions.DatedEntity;
+
+/**
+ * Курсор страницы списка (позиция последней записи предыдущей страницы)
+ *
+ * <p>
+ * Клиент получает курсор следующей страницы в заголовке ответа Next-Cursor
+ * и передает его в параметре after. Курсор хранит ключ сортировки (дату
+ * создания) и id записи, поэтому следующая страница читается по индексу с
+ * позиции записи: глубина листания и новые записи не влияют ни на скорость,
+ * ни на содержимое страниц. Для клиента курсор - непрозрачная строка.
+ * </p>
+ */
+public final class PageCursor {
+
+  /**
+   * Заголовок ответа с курсором следующей страницы
+   */
+  public static final String HEADER = "Next-Cursor";
+
+  // Размер курсора в байтах (ключ и id)
+  private static final int SIZE = 2 * Long.BYTES;
+
+  // Ключ сортировки последней записи
+  private final long key;
+  // Id последней записи
+  private final long id;
+
+  /**
+   * Создает курсор
+   *
+   * @param key - ключ сортировки записи (например, дата создания в мс)
+   * @param id  - id записи
+   */
+  public PageCursor(long key, long id) {
+    this.key = key;
+    this.id = id;
+  }
+
+  /**
+   * Создает курсор записи в порядке по дате создания
+   *
+   * @param entity - запись
+   * @return курсор записи
+   */
+  public static PageCursor of(DatedEntity entity) {
+    return new PageCursor(entity.getCreationDate().getTime(), entity.getId());
+  }
+
+  /**
+   * Разбирает курсор из параметра запроса
+   *
+   * @param str - курсор (пустая строка - первая страница)
+   * @return курсор (null для первой страницы)
+   */
+  public static PageCursor decode(String str) {
+    if (str.isEmpty()) {
+      return null;
+    }
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(str);
+    } catch (IllegalArgumentException ex) {
+      bytes = null;
+    }
+    if (bytes == null || bytes.length != SIZE) {
+      throw new IllegalArgumentException("Wrong after argument value: "
+          + "pass the " + HEADER + " header of the previous page.");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new PageCursor(buffer.getLong(), buffer.getLong());
+  }
+
+  /**
+   * Записывает курсор следующей страницы в заголовок ответа (только если
+   * страница заполнена: иначе записей дальше нет)
+   *
+   * @param page   - страница
+   * @param limit  - размер страницы
+   * @param cursor - курсор записи
+   * @param <T>    - класс записи
+   */
+  public static <T> void setNext(List<T> page, int limit,
+      Function<T, PageCursor> cursor) {
+    if (page.isEmpty() || page.size() < limit) {
+      return;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (!(attributes instanceof ServletRequestAttributes)) {
+      return;
+    }
+    HttpServletResponse response = ((ServletRequestAttributes) attributes)
+        .getResponse();
+    if (response != null) {
+      response.setHeader(HEADER,
+          cursor.apply(page.get(page.size() - 1)).encode());
+    }
+  }
+
+  /**
+   * Кодирует курсор в строку
+   *
+   * @return курсор для параметра after
+   */
+  public String encode() {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(
+        ByteBuffer.allocate(SIZE).putLong(key).putLong(id).array());
+  }
+
+  /**
+   * Возвращает ключ сортировки записи
+   *
+   * @return ключ сортировки
+   */
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Возвращает ключ сортировки как дату создания
+   *
+   * @return дата создания записи
+   */
+  public Date getDate() {
+    return new Date(key);
+  }
+
+  /**
+   * Возвращает id записи
+   *
+   * @return id записи
+   */
+  public long getId() {
+    return id;
+  }
+}
@@ -15,14 +15,18 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 import ru.hse.BookExchange.models.abstractions.DatedEntity;
+import ru.hse.BookExchange.search.TextNormalizer;
 
 /**
  * Книга (книга-бразец)
@@ -30,7 +34,8 @@ import ru.hse.BookExchange.models.abstractions.DatedEntity;
 @SuppressWarnings("unused")
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 @Entity(name = "BookBase")
-@Table(name = "book_base")
+@Table(name = "book_base", indexes = @Index(name = "book_base_rating_idx",
+    columnList = "rating_score DESC, id DESC"))
 public class BookBase extends DatedEntity {
 
   // Id книги
@@ -53,6 +58,14 @@ public class BookBase extends DatedEntity {
   // Заголовок книги
   protected String title;
 
+  // Нормализованный для поиска заголовок книги
+  @Column(name = "search_title")
+  protected String searchTitle;
+
+  // Нормализованный для поиска автор книги
+  @Column(name = "search_author")
+  protected String searchAuthor;
+
   // Количество страниц в книге
   @Column(name = "number_of_pages")
   protected Integer numberOfPages;
@@ -76,6 +89,27 @@ public class BookBase extends DatedEntity {
   @OneToMany(mappedBy = "ratedBookBase", cascade = CascadeType.REMOVE)
   protected List<BookBaseRate> rates = new ArrayList<>();
 
+  /* Поля рейтинга записываются только при добавлении книги, дальше их
+     меняет только BookBaseRepository.updateRating: сохранение всей книги
+     (PUT, жалоба) не затирает оценки, добавленные после ее загрузки */
+
+  // Сумма оценок книги (null - оценок нет)
+  @Column(name = "rating_sum", updatable = false)
+  protected Double ratingSum;
+
+  // Количество оценок книги (null - оценок нет)
+  @Column(name = "rating_count", updatable = false)
+  protected Integer ratingCount;
+
+  // Средняя оценка книги (хранится для сортировки по индексу)
+  @Column(name = "rating_average", updatable = false)
+  protected Float ratingAverage;
+
+  // Байесовская средняя оценка (по ней книги сортируются по рейтингу, 0 -
+  // оценок нет)
+  @Column(name = "rating_score", updatable = false)
+  protected Float ratingScore;
+
   // Обложка книги (фото книги)
   @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
   private BookBasePhoto photo;
@@ -175,23 +209,60 @@ public class BookBase extends DatedEntity {
    * @return список рейтинг книги
    */
   public float getRating() {
-    if (rates.size() == 0) {
-      return 0.0F;
-    }
-    double rateSum = 0;
-    for (var rate : rates) {
-      rateSum += rate.getRate();
-    }
-    return (float) (rateSum / rates.size());
+    // Оценки не загружаются: средняя оценка хранится в book_base
+    return ratingAverage == null ? 0.0F : ratingAverage;
   }
 
   /**
-   * Добавляет оценку книге
+   * Добавляет оценку еще не сохраненной книге (рейтинг сохраненной книги
+   * меняет BookBaseRepository.updateRating)
    *
    * @param rate оценка книги
    */
   public void addRate(BookBaseRate rate) {
     rates.add(rate);
+    ratingSum = (ratingSum == null ? 0 : ratingSum) + rate.getRate();
+    ratingCount = (ratingCount == null ? 0 : ratingCount) + 1;
+    ratingAverage = (float) (ratingSum / ratingCount);
+  }
+
+  /**
+   * Возвращает байесовскую среднюю оценку книги
+   *
+   * @return средняя оценка с учетом априорных оценок (0 - оценок нет)
+   */
+  @JsonIgnore
+  public float getRatingScore() {
+    return ratingScore == null ? 0.0F : ratingScore;
+  }
+
+  /**
+   * Нормализует поля для поиска и заполняет рейтинг новой книги перед
+   * добавлением
+   */
+  @PrePersist
+  protected void beforeInsert() {
+    beforeUpdate();
+    // Без null книги без оценок сортируются по рейтингу после оцененных
+    if (ratingCount == null) {
+      ratingSum = 0.0;
+      ratingCount = 0;
+      ratingAverage = 0.0F;
+    }
+    // Байесовскую оценку по добавленным оценкам пересчитывает
+    // BookBaseRatingService
+    if (ratingScore == null) {
+      ratingScore = 0.0F;
+    }
+  }
+
+  /**
+   * Нормализует поля для поиска перед сохранением
+   */
+  @PreUpdate
+  protected void beforeUpdate() {
+    searchTitle = TextNormalizer.normalize(title);
+    searchAuthor = TextNormalizer.normalize(author);
   }
 
   /**
@@ -304,6 +375,33 @@ public class BookBase extends DatedEntity {
   }
 
 
+  /**
+   * Возвращает нормализованный для поиска заголовок книги
+   *
+   * @return слова заголовка через пробел
+   */
+  @JsonIgnore
+  public String getSearchTitle() {
+    // Книга могла еще не сохраняться после изменения
+    if (searchTitle == null) {
+      return TextNormalizer.normalize(title);
+    }
+    return searchTitle;
+  }
+
+  /**
+   * Возвращает нормализованного для поиска автора книги
+   *
+   * @return слова автора через пробел
+   */
+  @JsonIgnore
+  public String getSearchAuthor() {
+    if (searchAuthor == null) {
+      return TextNormalizer.normalize(author);
+    }
+    return searchAuthor;
+  }
+
   /**
    * Возвращает количество страниц в книге
    *
@@ -8,9 +8,11 @@ import java.util.stream.Collectors;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import ru.hse.BookExchange.models.Complaint;
@@ -21,6 +23,9 @@ import ru.hse.BookExchange.models.Complaint;
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+@Table(name = "dated_entity", indexes = @Index(
+    name = "dated_entity_creation_date_idx",
+    columnList = "creationDate DESC, id DESC"))
 public abstract class DatedEntity implements Comparable<DatedEntity> {
 
   // Id записи
@@ -0,0 +1,126 @@
+package ru.hse.BookExchange.models.projections;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import ru.hse.BookExchange.models.BookBase.Language;
+
+/**
+ * Книга (bookBase) для списков (в том же JSON, что и BookBase)
+ *
+ * <p>
+ * Поля читаются одним запросом, id жанров, книг для передачи и
+ * пользователей, добавивших книгу в избранное, - одним запросом на каждую
+ * связь для всей страницы.
+ * </p>
+ */
+@JsonPropertyOrder({"id", "creationDate", "author", "language", "title",
+    "numberOfPages", "publishYear", "description", "genreIds", "wishersIds",
+    "photoId", "bookIds", "rating"})
+public class BookBaseView {
+
+  // Id книги
+  private final Long id;
+  // Дата создания
+  private final Date creationDate;
+  // Автор книги
+  private final String author;
+  // Язык книги
+  private final Language language;
+  // Заголовок книги
+  private final String title;
+  // Количество страниц в книге
+  private final Integer numberOfPages;
+  // Год выпуска книги
+  private final Integer publishYear;
+  // Описание книги
+  private final String description;
+  // Средняя оценка книги
+  private final float rating;
+  // Байесовская средняя оценка книги
+  private final float ratingScore;
+  // Id обложки книги
+  private final Long photoId;
+  // Id жанров
+  private final List<Long> genreIds = new ArrayList<>();
+  // Id книг для передачи (book)
+  private final List<Long> bookIds = new ArrayList<>();
+  // Id пользователей, добавивших книгу в избранное
+  private final List<Long> wishersIds = new ArrayList<>();
+
+  public BookBaseView(Long id, Date creationDate, String author,
+      Language language, String title, Integer numberOfPages,
+      Integer publishYear, String description, Float rating,
+      Float ratingScore, Long photoId) {
+    this.id = id;
+    this.creationDate = creationDate;
+    this.author = author;
+    this.language = language;
+    this.title = title;
+    this.numberOfPages = numberOfPages;
+    this.publishYear = publishYear;
+    this.description = description;
+    this.rating = rating == null ? 0.0F : rating;
+    this.ratingScore = ratingScore == null ? 0.0F : ratingScore;
+    this.photoId = photoId;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Date getCreationDate() {
+    return creationDate;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  public Language getLanguage() {
+    return language;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public Integer getNumberOfPages() {
+    return numberOfPages;
+  }
+
+  public Integer getPublishYear() {
+    return publishYear;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public float getRating() {
+    return rating;
+  }
+
+  @JsonIgnore
+  public float getRatingScore() {
+    return ratingScore;
+  }
+
+  public Long getPhotoId() {
+    return photoId;
+  }
+
+  public List<Long> getGenreIds() {
+    return genreIds;
+  }
+
+  public List<Long> getBookIds() {
+    return bookIds;
+  }
+
+  public List<Long> getWishersIds() {
+    return wishersIds;
+  }
+}
@@ -0,0 +1,120 @@
+package ru.hse.BookExchange.models.projections;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import ru.hse.BookExchange.models.User.Role;
+
+/**
+ * Пользователь для списков (в том же JSON, что и User)
+ *
+ * <p>
+ * Поля читаются одним запросом, id связанных записей - одним запросом на
+ * каждую связь для всей страницы, поэтому сериализация не загружает
+ * коллекции каждого пользователя.
+ * </p>
+ */
+@JsonPropertyOrder({"id", "creationDate", "role", "username", "name",
+    "townId", "wishListIds", "exchangeListIds", "blocked",
+    "bookBaseAddRequestIds", "complaintsIds", "avatarId",
+    "outcomingBookExchangeRequestIds", "incomingBookExchangeRequestIds"})
+public class UserView {
+
+  // Id пользователя
+  private final Long id;
+  // Дата создания
+  private final Date creationDate;
+  // Роль пользователя
+  private final Role role;
+  // Юзернейм (логин) пользователя
+  private final String username;
+  // Имя (ФИО) пользователя
+  private final String name;
+  // Id города пользователя
+  private final Long townId;
+  // Заблокирован ли пользователь
+  private final boolean blocked;
+  // Id аватара пользователя
+  private final Long avatarId;
+  // Id книг для передачи
+  private final List<Long> exchangeListIds = new ArrayList<>();
+  // Id избранных книг
+  private final List<Long> wishListIds = new ArrayList<>();
+  // Id запросов на добавление книг (bookBase)
+  private final List<Long> bookBaseAddRequestIds = new ArrayList<>();
+  // Id жалоб пользователя
+  private final List<Long> complaintsIds = new ArrayList<>();
+  // Id запросов на передачу книги, в которых пользователь отдает книгу
+  private final List<Long> outcomingBookExchangeRequestIds = new ArrayList<>();
+  // Id запросов на передачу книги, в которых пользователь получает книгу
+  private final List<Long> incomingBookExchangeRequestIds = new ArrayList<>();
+
+  public UserView(Long id, Date creationDate, Role role, String username,
+      String name, Long townId, boolean blocked, Long avatarId) {
+    this.id = id;
+    this.creationDate = creationDate;
+    this.role = role;
+    this.username = username;
+    this.name = name;
+    this.townId = townId;
+    this.blocked = blocked;
+    this.avatarId = avatarId;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Date getCreationDate() {
+    return creationDate;
+  }
+
+  public Role getRole() {
+    return role;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Long getTownId() {
+    return townId;
+  }
+
+  public boolean isBlocked() {
+    return blocked;
+  }
+
+  public Long getAvatarId() {
+    return avatarId;
+  }
+
+  public List<Long> getExchangeListIds() {
+    return exchangeListIds;
+  }
+
+  public List<Long> getWishListIds() {
+    return wishListIds;
+  }
+
+  public List<Long> getBookBaseAddRequestIds() {
+    return bookBaseAddRequestIds;
+  }
+
+  public List<Long> getComplaintsIds() {
+    return complaintsIds;
+  }
+
+  public List<Long> getOutcomingBookExchangeRequestIds() {
+    return outcomingBookExchangeRequestIds;
+  }
+
+  public List<Long> getIncomingBookExchangeRequestIds() {
+    return incomingBookExchangeRequestIds;
+  }
+}
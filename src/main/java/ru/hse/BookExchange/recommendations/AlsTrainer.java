@@ -0,0 +1,125 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Обучение модели факторов методом ALS (alternating least squares)
+ *
+ * <p>
+ * Оценка пользователя u книге i приближается как mean + x_u * y_i, где x_u
+ * и y_i - векторы факторов длины rank. Поочередно при фиксированных
+ * факторах книг точно решаются задачи наименьших квадратов для каждого
+ * пользователя и наоборот. Регуляризация пропорциональна количеству оценок
+ * (ALS-WR). Начальные факторы задаются генератором с фиксированным seed,
+ * поэтому обучение детерминировано.
+ * </p>
+ */
+final class AlsTrainer {
+
+  private AlsTrainer() {
+  }
+
+  /**
+   * Обучает модель факторов
+   *
+   * @param ratings    - оценки пользователь x книга
+   * @param rank       - длина векторов факторов
+   * @param lambda     - коэффициент регуляризации
+   * @param iterations - количество пар шагов (пользователи, книги)
+   * @param seed       - seed начальных факторов
+   * @return модель факторов
+   */
+  static FactorModel train(RatingMatrix ratings, int rank, float lambda,
+      int iterations, long seed) {
+    RatingMatrix byItem = ratings.transpose();
+    float mean = 0;
+    for (float value : ratings.values) {
+      mean += value;
+    }
+    mean = ratings.size() == 0 ? 0 : mean / ratings.size();
+
+    float[] userFactors = new float[ratings.rowIds.length * rank];
+    float[] itemFactors = new float[byItem.rowIds.length * rank];
+    Random random = new Random(seed);
+    for (int k = 0; k < itemFactors.length; k++) {
+      itemFactors[k] = (float) (random.nextGaussian() * 0.1);
+    }
+
+    double[] a = new double[rank * rank];
+    double[] b = new double[rank];
+    for (int it = 0; it < iterations; it++) {
+      solve(ratings, itemFactors, userFactors, rank, lambda, mean, a, b);
+      solve(byItem, userFactors, itemFactors, rank, lambda, mean, a, b);
+    }
+    return new FactorModel(ratings.rowIds, byItem.rowIds, ratings.rowStart,
+        ratings.cols, rank, userFactors, itemFactors);
+  }
+
+  // Считает факторы строк матрицы при фиксированных факторах столбцов
+  private static void solve(RatingMatrix matrix, float[] fixed, float[] res,
+      int rank, float lambda, float mean, double[] a, double[] b) {
+    for (int i = 0; i < matrix.rowIds.length; i++) {
+      int from = matrix.rowStart[i];
+      int to = matrix.rowStart[i + 1];
+      // a = sum(y * y^T) + lambda * n * I, b = sum((r - mean) * y)
+      Arrays.fill(a, 0);
+      Arrays.fill(b, 0);
+      for (int k = from; k < to; k++) {
+        int y = matrix.cols[k] * rank;
+        double r = matrix.values[k] - mean;
+        for (int p = 0; p < rank; p++) {
+          double yp = fixed[y + p];
+          b[p] += r * yp;
+          for (int q = 0; q <= p; q++) {
+            a[p * rank + q] += yp * fixed[y + q];
+          }
+        }
+      }
+      for (int p = 0; p < rank; p++) {
+        a[p * rank + p] += lambda * Math.max(1, to - from);
+      }
+      choleskySolve(a, b, rank);
+      for (int p = 0; p < rank; p++) {
+        res[i * rank + p] = (float) b[p];
+      }
+    }
+  }
+
+  /* Решает систему a * x = b с симметричной положительно определенной
+     матрицей (заполнен нижний треугольник). Результат записывается в b */
+  private static void choleskySolve(double[] a, double[] b, int n) {
+    // Разложение a = L * L^T (L на месте нижнего треугольника a)
+    for (int j = 0; j < n; j++) {
+      double d = a[j * n + j];
+      for (int k = 0; k < j; k++) {
+        d -= a[j * n + k] * a[j * n + k];
+      }
+      d = Math.sqrt(d);
+      a[j * n + j] = d;
+      for (int i = j + 1; i < n; i++) {
+        double s = a[i * n + j];
+        for (int k = 0; k < j; k++) {
+          s -= a[i * n + k] * a[j * n + k];
+        }
+        a[i * n + j] = s / d;
+      }
+    }
+    // L * z = b
+    for (int i = 0; i < n; i++) {
+      double s = b[i];
+      for (int k = 0; k < i; k++) {
+        s -= a[i * n + k] * b[k];
+      }
+      b[i] = s / a[i * n + i];
+    }
+    // L^T * x = z
+    for (int i = n - 1; i >= 0; i--) {
+      double s = b[i];
+      for (int k = i + 1; k < n; k++) {
+        s -= a[k * n + i] * b[k];
+      }
+      b[i] = s / a[i * n + i];
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.Collection;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hse.BookExchange.repositories.BookBaseRateRepository;
+
+/**
+ * Коллаборативная фильтрация по оценкам книг (BookBaseRate)
+ *
+ * <p>
+ * Модель факторов обучается при запуске приложения и при фоновом пересчете
+ * рекомендаций. Запрос рекомендаций только считает скалярные произведения
+ * по готовым векторам.
+ * </p>
+ */
+@Component
+public class CollaborativeFilter {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(CollaborativeFilter.class);
+
+  // Seed начальных факторов (обучение детерминировано)
+  private static final long SEED = 42;
+
+  // Репозиторий оценок книг
+  private final BookBaseRateRepository bookBaseRateRepository;
+  // Готовые рекомендации пользователей
+  private final RecommendationStore recommendationStore;
+  // Длина векторов факторов
+  private final int rank;
+  // Коэффициент регуляризации
+  private final float lambda;
+  // Количество итераций обучения
+  private final int iterations;
+  // Модель факторов (заменяется целиком при переобучении)
+  private volatile FactorModel model = FactorModel.EMPTY;
+
+  public CollaborativeFilter(BookBaseRateRepository bookBaseRateRepository,
+      RecommendationStore recommendationStore,
+      @Value("${recommendations.cf.rank:16}") int rank,
+      @Value("${recommendations.cf.lambda:0.1}") float lambda,
+      @Value("${recommendations.cf.iterations:10}") int iterations) {
+    if (rank <= 0 || lambda <= 0 || iterations <= 0) {
+      throw new IllegalArgumentException(
+          "recommendations.cf settings must be positive");
+    }
+    this.bookBaseRateRepository = bookBaseRateRepository;
+    this.recommendationStore = recommendationStore;
+    this.rank = rank;
+    this.lambda = lambda;
+    this.iterations = iterations;
+  }
+
+  /**
+   * Обучает модель по всем оценкам из бд (после загрузки стартовых записей)
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public synchronized void train() {
+    List<Object[]> rows = bookBaseRateRepository.findAllUserRates();
+    long[] users = new long[rows.size()];
+    long[] books = new long[rows.size()];
+    float[] rates = new float[rows.size()];
+    for (int k = 0; k < rows.size(); k++) {
+      users[k] = (Long) rows.get(k)[0];
+      books[k] = (Long) rows.get(k)[1];
+      rates[k] = (Float) rows.get(k)[2];
+    }
+
+    long start = System.currentTimeMillis();
+    RatingMatrix ratings = RatingMatrix.of(users, books, rates);
+    model = AlsTrainer.train(ratings, rank, lambda, iterations, SEED);
+    // Сохраненные рекомендации добраны по старой модели
+    recommendationStore.invalidateAll();
+    log.info("Factor model trained: " + ratings.rowIds.length + " users, "
+        + ratings.colIds.length + " bookBases, " + ratings.size()
+        + " rates in " + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * Возвращает книги с наибольшей ожидаемой оценкой пользователя (кроме
+   * книг, которые он уже оценил)
+   *
+   * @param userId  - id пользователя
+   * @param exclude - id других книг, которые не нужно возвращать
+   * @param k       - сколько книг вернуть
+   * @return id книг (null, если пользователь ничего не оценивал)
+   */
+  public long[] recommend(Long userId, Collection<Long> exclude, int k) {
+    return model.recommend(userId, exclude, k);
+  }
+}
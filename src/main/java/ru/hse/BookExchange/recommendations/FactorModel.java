@@ -0,0 +1,131 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import ru.hse.BookExchange.search.TopK;
+
+/**
+ * Векторы факторов пользователей и книг, полученные из оценок книг
+ *
+ * <p>
+ * Чем больше скалярное произведение векторов пользователя и книги, тем
+ * выше ожидаемая оценка книги пользователем. Векторы всех пользователей
+ * (и всех книг) лежат подряд в одном массиве. Модель неизменяема.
+ * </p>
+ */
+public final class FactorModel {
+
+  // Пустая модель
+  public static final FactorModel EMPTY = new FactorModel(new long[0],
+      new long[0], new int[]{0}, new int[0], 0, new float[0], new float[0]);
+
+  // Id пользователей по возрастанию
+  private final long[] userIds;
+  // Id книг по возрастанию
+  private final long[] itemIds;
+  // Начало оцененных книг каждого пользователя в ratedItems
+  private final int[] ratedStart;
+  // Номера книг, оцененных пользователями (строки RatingMatrix)
+  private final int[] ratedItems;
+  // Длина векторов
+  private final int rank;
+  // Векторы пользователей
+  private final float[] userFactors;
+  // Векторы книг
+  private final float[] itemFactors;
+
+  FactorModel(long[] userIds, long[] itemIds, int[] ratedStart,
+      int[] ratedItems, int rank, float[] userFactors, float[] itemFactors) {
+    this.userIds = userIds;
+    this.itemIds = itemIds;
+    this.ratedStart = ratedStart;
+    this.ratedItems = ratedItems;
+    this.rank = rank;
+    this.userFactors = userFactors;
+    this.itemFactors = itemFactors;
+  }
+
+  /**
+   * Возвращает ожидаемую оценку книги пользователем без средней оценки
+   *
+   * @param userId - id пользователя
+   * @param itemId - id книги
+   * @return скалярное произведение векторов (0, если их нет в модели)
+   */
+  public float score(long userId, long itemId) {
+    int u = Arrays.binarySearch(userIds, userId);
+    int i = Arrays.binarySearch(itemIds, itemId);
+    return u < 0 || i < 0 ? 0 : dot(u * rank, i * rank);
+  }
+
+  /**
+   * Возвращает книги с наибольшей ожидаемой оценкой пользователя (книги,
+   * которые он уже оценил, не возвращаются)
+   *
+   * @param userId  - id пользователя
+   * @param exclude - id других книг, которые не нужно возвращать
+   * @param k       - сколько книг вернуть
+   * @return id книг по убыванию оценки (null, если пользователь ничего не
+   * оценивал)
+   */
+  public long[] recommend(long userId, Collection<Long> exclude, int k) {
+    int u = Arrays.binarySearch(userIds, userId);
+    if (u < 0) {
+      return null;
+    }
+    Set<Long> excluded = new HashSet<>(exclude);
+    boolean[] rated = new boolean[itemIds.length];
+    for (int j = ratedStart[u]; j < ratedStart[u + 1]; j++) {
+      rated[ratedItems[j]] = true;
+    }
+    // Ключ (-оценка, номер книги): наименьшие ключи - лучшие книги
+    long[] keys = new long[itemIds.length];
+    int size = 0;
+    for (int i = 0; i < itemIds.length; i++) {
+      if (!rated[i] && !excluded.contains(itemIds[i])) {
+        keys[size++] = ((long) sortable(-dot(u * rank, i * rank)) << 32) | i;
+      }
+    }
+    long[] top = TopK.selectSmallest(Arrays.copyOf(keys, size), k);
+    long[] res = new long[top.length];
+    for (int j = 0; j < top.length; j++) {
+      res[j] = itemIds[(int) top[j]];
+    }
+    return res;
+  }
+
+  /**
+   * Возвращает векторы пользователей (подряд, в порядке id)
+   *
+   * @return векторы пользователей
+   */
+  float[] getUserFactors() {
+    return userFactors.clone();
+  }
+
+  /**
+   * Возвращает векторы книг (подряд, в порядке id)
+   *
+   * @return векторы книг
+   */
+  float[] getItemFactors() {
+    return itemFactors.clone();
+  }
+
+  // Скалярное произведение вектора пользователя и вектора книги
+  private float dot(int user, int item) {
+    float res = 0;
+    for (int p = 0; p < rank; p++) {
+      res += userFactors[user + p] * itemFactors[item + p];
+    }
+    return res;
+  }
+
+  // Переводит float в int с тем же порядком сравнения
+  private static int sortable(float value) {
+    int bits = Float.floatToIntBits(value);
+    return bits ^ ((bits >> 31) & 0x7fffffff);
+  }
+}
@@ -0,0 +1,133 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.Arrays;
+
+/**
+ * Разреженная матрица оценок пользователь x книга в формате CSR
+ *
+ * <p>
+ * Строки - пользователи, столбцы - книги (номера в отсортированных массивах
+ * id). Оценки строки i лежат в cols/values на отрезке
+ * [rowStart[i]; rowStart[i + 1]). Повторные оценки одной книги одним
+ * пользователем усредняются.
+ * </p>
+ */
+final class RatingMatrix {
+
+  // Id строк по возрастанию
+  final long[] rowIds;
+  // Id столбцов по возрастанию
+  final long[] colIds;
+  // Начало каждой строки в cols/values (длина - строки + 1)
+  final int[] rowStart;
+  // Номера столбцов
+  final int[] cols;
+  // Оценки
+  final float[] values;
+
+  private RatingMatrix(long[] rowIds, long[] colIds, int[] rowStart,
+      int[] cols, float[] values) {
+    this.rowIds = rowIds;
+    this.colIds = colIds;
+    this.rowStart = rowStart;
+    this.cols = cols;
+    this.values = values;
+  }
+
+  /**
+   * Строит матрицу по тройкам (строка, столбец, оценка)
+   *
+   * @param rows   - id строк (пользователей)
+   * @param cols   - id столбцов (книг)
+   * @param values - оценки
+   * @return матрица
+   */
+  static RatingMatrix of(long[] rows, long[] cols, float[] values) {
+    long[] rowIds = distinctSorted(rows);
+    long[] colIds = distinctSorted(cols);
+    int n = rows.length;
+
+    // Сортируем тройки по (строка, столбец) через ключ из номеров
+    long[] keys = new long[n];
+    for (int k = 0; k < n; k++) {
+      keys[k] = ((long) Arrays.binarySearch(rowIds, rows[k]) << 32)
+          | Arrays.binarySearch(colIds, cols[k]);
+    }
+    Integer[] order = new Integer[n];
+    for (int k = 0; k < n; k++) {
+      order[k] = k;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+    int[] rowStart = new int[rowIds.length + 1];
+    int[] resCols = new int[n];
+    float[] resValues = new float[n];
+    int size = 0;
+    int count = 0;
+    for (int k = 0; k < n; k++) {
+      int t = order[k];
+      if (size > 0 && keys[order[k - 1]] == keys[t]) {
+        // Повторная оценка: копим сумму, потом делим на количество
+        resValues[size - 1] += values[t];
+        count++;
+        continue;
+      }
+      if (count > 1) {
+        resValues[size - 1] /= count;
+      }
+      int row = (int) (keys[t] >>> 32);
+      rowStart[row + 1]++;
+      resCols[size] = (int) keys[t];
+      resValues[size++] = values[t];
+      count = 1;
+    }
+    if (count > 1) {
+      resValues[size - 1] /= count;
+    }
+    for (int i = 0; i < rowIds.length; i++) {
+      rowStart[i + 1] += rowStart[i];
+    }
+    return new RatingMatrix(rowIds, colIds, rowStart,
+        Arrays.copyOf(resCols, size), Arrays.copyOf(resValues, size));
+  }
+
+  /**
+   * Возвращает транспонированную матрицу (книга x пользователь)
+   *
+   * @return транспонированная матрица
+   */
+  RatingMatrix transpose() {
+    int[] colStart = new int[colIds.length + 1];
+    for (int col : cols) {
+      colStart[col + 1]++;
+    }
+    for (int j = 0; j < colIds.length; j++) {
+      colStart[j + 1] += colStart[j];
+    }
+    int[] next = Arrays.copyOf(colStart, colIds.length);
+    int[] resRows = new int[cols.length];
+    float[] resValues = new float[cols.length];
+    for (int i = 0; i < rowIds.length; i++) {
+      for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+        int pos = next[cols[k]]++;
+        resRows[pos] = i;
+        resValues[pos] = values[k];
+      }
+    }
+    return new RatingMatrix(colIds, rowIds, colStart, resRows, resValues);
+  }
+
+  /**
+   * Возвращает количество оценок
+   *
+   * @return количество ненулевых элементов
+   */
+  int size() {
+    return cols.length;
+  }
+
+  // Возвращает различные значения по возрастанию
+  private static long[] distinctSorted(long[] values) {
+    return Arrays.stream(values).distinct().sorted().toArray();
+  }
+}
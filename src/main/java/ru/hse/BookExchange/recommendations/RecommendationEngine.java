@@ -0,0 +1,189 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hse.BookExchange.recommendations.SimilarityModel.Item;
+import ru.hse.BookExchange.repositories.BookBaseRateRepository;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+import ru.hse.BookExchange.repositories.GenreRepository;
+import ru.hse.BookExchange.repositories.UserRepository;
+
+/**
+ * Рекомендации книг по похожести на книги из избранного пользователя
+ *
+ * <p>
+ * Похожесть книг считается заранее (при запуске приложения) по спискам
+ * избранного, жанрам и авторам всех книг. Рекомендации пользователя - это
+ * объединение списков похожих книг для книг из его избранного, поэтому
+ * запрос рекомендаций не обходит весь каталог.
+ * </p>
+ *
+ * <p>
+ * Модель пересчитывается ночью (RecommendationJob) и после изменения
+ * каталога: добавленные, измененные и удаленные книги учитываются не
+ * позже чем через recommendations.rebuild-delay-ms. До этого новая книга
+ * не имеет похожих книг и сама не рекомендуется как похожая. Изменения
+ * избранного меняют похожесть книг тоже только при перестроении.
+ * </p>
+ */
+@Component
+public class RecommendationEngine {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(RecommendationEngine.class);
+
+  // Репозиторий книг (bookBase)
+  private final BookBaseRepository bookBaseRepository;
+  // Репозиторий жанров
+  private final GenreRepository genreRepository;
+  // Репозиторий оценок книг
+  private final BookBaseRateRepository bookBaseRateRepository;
+  // Репозиторий пользователей
+  private final UserRepository userRepository;
+  // Готовые рекомендации пользователей
+  private final RecommendationStore recommendationStore;
+  // Коллаборативная фильтрация по оценкам
+  private final CollaborativeFilter collaborativeFilter;
+  // Сколько похожих книг хранить для каждой книги
+  private final int neighbors;
+  // Модель похожести (заменяется целиком при перестроении)
+  private volatile SimilarityModel model = SimilarityModel.EMPTY;
+  // Изменился ли каталог после последнего перестроения
+  private final AtomicBoolean catalogChanged = new AtomicBoolean();
+
+  public RecommendationEngine(BookBaseRepository bookBaseRepository,
+      GenreRepository genreRepository,
+      BookBaseRateRepository bookBaseRateRepository,
+      UserRepository userRepository,
+      RecommendationStore recommendationStore,
+      CollaborativeFilter collaborativeFilter,
+      @Value("${recommendations.neighbors:50}") int neighbors) {
+    if (neighbors <= 0) {
+      throw new IllegalArgumentException(
+          "recommendations.neighbors must be positive");
+    }
+    this.bookBaseRepository = bookBaseRepository;
+    this.genreRepository = genreRepository;
+    this.bookBaseRateRepository = bookBaseRateRepository;
+    this.userRepository = userRepository;
+    this.recommendationStore = recommendationStore;
+    this.collaborativeFilter = collaborativeFilter;
+    this.neighbors = neighbors;
+  }
+
+  /**
+   * Пересчитывает похожесть всех книг (после загрузки стартовых записей)
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public synchronized void rebuild() {
+    // Изменения после чтения каталога вызовут следующее перестроение
+    catalogChanged.set(false);
+    // Книга -> жанры
+    Map<Long, List<Long>> genres = new HashMap<>();
+    for (Object[] row : genreRepository.findAllBookBaseGenres()) {
+      genres.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+          .add((Long) row[1]);
+    }
+    // Книга -> средняя оценка
+    Map<Long, Double> ratings = new HashMap<>();
+    for (Object[] row : bookBaseRateRepository.findAllRatings()) {
+      ratings.put((Long) row[0], (Double) row[1]);
+    }
+    List<Item> items = new ArrayList<>();
+    for (Object[] row : bookBaseRepository.findAllAuthors()) {
+      Long id = (Long) row[0];
+      items.add(new Item(id, (String) row[1],
+          genres.getOrDefault(id, List.of()).stream()
+              .mapToLong(Long::longValue).toArray(),
+          ratings.getOrDefault(id, 0.0).floatValue()));
+    }
+    // Пользователь -> избранные книги
+    Map<Long, List<Long>> wishLists = new HashMap<>();
+    for (Object[] row : userRepository.findAllWishes()) {
+      wishLists.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+          .add((Long) row[1]);
+    }
+
+    long start = System.currentTimeMillis();
+    model = SimilarityModel.build(items, wishLists, neighbors);
+    // Сохраненные рекомендации посчитаны по старой модели
+    recommendationStore.invalidateAll();
+    log.info("Recommendation model built: " + items.size() + " bookBases, "
+        + wishLists.size() + " wish lists in "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * Отмечает, что каталог изменился (книга добавлена, изменена или
+   * удалена): модель будет перестроена RecommendationJob
+   */
+  public void onCatalogChanged() {
+    catalogChanged.set(true);
+  }
+
+  /**
+   * Возвращает, изменился ли каталог после последнего перестроения модели
+   *
+   * @return нужно ли перестроить модель
+   */
+  public boolean isCatalogChanged() {
+    return catalogChanged.get();
+  }
+
+  /**
+   * Рекомендует книги по книгам из избранного (недостающие добираются
+   * книгами с наибольшей ожидаемой оценкой пользователя)
+   *
+   * @param userId  - id пользователя
+   * @param wished  - id избранных книг (они не попадают в рекомендации)
+   * @param minSize - сколько книг нужно как минимум (недостающие добираются
+   *                книгами с наибольшим рейтингом)
+   * @return рекомендованные книги
+   */
+  public RecommendationList recommend(Long userId, Collection<Long> wished,
+      int minSize) {
+    SimilarityModel model = this.model;
+    return model.recommend(wished, minSize,
+        getFallback(userId, wished, minSize));
+  }
+
+  /**
+   * Обновляет рекомендации после изменения избранного на одну книгу
+   *
+   * @param list    - рекомендации до изменения избранного
+   * @param userId  - id пользователя
+   * @param wished  - id избранных книг после изменения
+   * @param bookId  - id добавленной или удаленной книги
+   * @param added   - добавлена ли книга (иначе удалена)
+   * @param minSize - сколько книг нужно как минимум
+   * @return новые рекомендации
+   */
+  public RecommendationList update(RecommendationList list, Long userId,
+      Collection<Long> wished, long bookId, boolean added, int minSize) {
+    SimilarityModel model = this.model;
+    return model.update(list, wished, bookId, added, minSize,
+        getFallback(userId, wished, minSize));
+  }
+
+  /* Возвращает книги с наибольшей ожидаемой оценкой пользователя для добора
+     рекомендаций: их должно хватить, даже если все они уже подобраны по
+     похожести */
+  private long[] getFallback(Long userId, Collection<Long> wished,
+      int minSize) {
+    return collaborativeFilter.recommend(userId, wished,
+        minSize + wished.size() * neighbors);
+  }
+}
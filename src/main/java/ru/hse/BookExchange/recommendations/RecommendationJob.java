@@ -0,0 +1,144 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hse.BookExchange.repositories.BookBaseRateRepository;
+import ru.hse.BookExchange.repositories.UserRepository;
+
+/**
+ * Фоновый пересчет рекомендаций
+ *
+ * <p>
+ * По расписанию (по умолчанию ночью) переобучает модель факторов по
+ * оценкам, пересчитывает похожесть книг и заранее сохраняет рекомендации
+ * всех пользователей с непустым избранным или хотя бы одной оценкой.
+ * Пользователи обрабатываются частями на ограниченном количестве потоков,
+ * чтобы пересчет не занимал все ядра. Пользователи, до которых пересчет еще
+ * не дошел, получают рекомендации по готовой модели при запросе.
+ * </p>
+ */
+@Component
+public class RecommendationJob {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(RecommendationJob.class);
+
+  // Рекомендации по похожести книг
+  private final RecommendationEngine recommendationEngine;
+  // Коллаборативная фильтрация по оценкам
+  private final CollaborativeFilter collaborativeFilter;
+  // Готовые рекомендации пользователей
+  private final RecommendationStore recommendationStore;
+  // Репозиторий пользователей
+  private final UserRepository userRepository;
+  // Репозиторий оценок книг
+  private final BookBaseRateRepository bookBaseRateRepository;
+  // Сколько пользователей обрабатывать одной задачей
+  private final int chunkSize;
+  // Сколько рекомендаций сохранять для каждого пользователя
+  private final int size;
+  // Потоки пересчета
+  private final ExecutorService executor;
+
+  public RecommendationJob(RecommendationEngine recommendationEngine,
+      CollaborativeFilter collaborativeFilter,
+      RecommendationStore recommendationStore,
+      UserRepository userRepository,
+      BookBaseRateRepository bookBaseRateRepository,
+      @Value("${recommendations.job.chunk-size:500}") int chunkSize,
+      @Value("${recommendations.job.size:100}") int size,
+      @Value("${recommendations.job.threads:2}") int threads) {
+    if (chunkSize <= 0 || size <= 0 || threads <= 0) {
+      throw new IllegalArgumentException(
+          "recommendations.job settings must be positive");
+    }
+    this.recommendationEngine = recommendationEngine;
+    this.collaborativeFilter = collaborativeFilter;
+    this.recommendationStore = recommendationStore;
+    this.userRepository = userRepository;
+    this.bookBaseRateRepository = bookBaseRateRepository;
+    this.chunkSize = chunkSize;
+    this.size = size;
+    this.executor = Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   * Останавливает потоки пересчета
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Перестраивает модель похожести, если каталог изменился (сохраненные
+   * рекомендации при этом сбрасываются и считаются заново при запросе)
+   */
+  @Scheduled(fixedDelayString = "${recommendations.rebuild-delay-ms:600000}",
+      initialDelayString = "${recommendations.rebuild-delay-ms:600000}")
+  public void rebuildIfCatalogChanged() {
+    if (recommendationEngine.isCatalogChanged()) {
+      recommendationEngine.rebuild();
+    }
+  }
+
+  /**
+   * Переобучает модели и пересчитывает рекомендации пользователей
+   */
+  @Scheduled(cron = "${recommendations.job.cron:0 0 4 * * *}")
+  public void run() {
+    long start = System.currentTimeMillis();
+    collaborativeFilter.train();
+    recommendationEngine.rebuild();
+
+    // Номер сброса нужно получить до чтения избранного
+    long version = recommendationStore.getVersion();
+    Map<Long, List<Long>> wishLists = new HashMap<>();
+    for (Object[] row : userRepository.findAllWishes()) {
+      wishLists.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+          .add((Long) row[1]);
+    }
+    for (Long userId : bookBaseRateRepository.findAllCreatorIds()) {
+      wishLists.computeIfAbsent(userId, id -> new ArrayList<>());
+    }
+
+    List<Long> userIds = new ArrayList<>(wishLists.keySet());
+    List<Future<?>> tasks = new ArrayList<>();
+    for (int from = 0; from < userIds.size(); from += chunkSize) {
+      List<Long> chunk = userIds
+          .subList(from, Math.min(from + chunkSize, userIds.size()));
+      tasks.add(executor.submit(() -> {
+        for (Long userId : chunk) {
+          recommendationStore.put(userId, version, recommendationEngine
+              .recommend(userId, wishLists.get(userId), size));
+        }
+      }));
+    }
+    try {
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (ExecutionException ex) {
+      log.error("Recommendation job failed", ex.getCause());
+      return;
+    }
+    log.info("Recommendations precomputed for " + userIds.size()
+        + " users in " + (System.currentTimeMillis() - start) + " ms");
+  }
+}
@@ -0,0 +1,42 @@
+package ru.hse.BookExchange.recommendations;
+
+/**
+ * Рекомендации пользователя: id книг и очки похожести
+ *
+ * <p>
+ * Первые scores.length книг подобраны по избранному пользователя (очки -
+ * сумма похожести на избранные книги), остальные - книги с наибольшим
+ * рейтингом. Очки нужны, чтобы обновлять список при изменении избранного,
+ * не пересчитывая его заново.
+ * </p>
+ */
+public final class RecommendationList {
+
+  // Id рекомендованных книг
+  private final long[] ids;
+  // Очки подобранных по избранному книг
+  private final float[] scores;
+
+  RecommendationList(long[] ids, float[] scores) {
+    this.ids = ids;
+    this.scores = scores;
+  }
+
+  /**
+   * Возвращает id рекомендованных книг
+   *
+   * @return id книг по убыванию похожести
+   */
+  public long[] getIds() {
+    return ids;
+  }
+
+  /**
+   * Возвращает очки подобранных по избранному книг
+   *
+   * @return очки первых книг списка
+   */
+  float[] getScores() {
+    return scores;
+  }
+}
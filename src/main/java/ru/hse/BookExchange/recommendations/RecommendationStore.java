@@ -0,0 +1,291 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Хранилище готовых рекомендаций пользователей: id пользователя -> id книг
+ *
+ * <p>
+ * Хранит только id книг (и их очки для обновления списка при изменении
+ * избранного), поэтому сами книги (и скрытие приватных книг) каждый раз
+ * загружаются заново. Размер хранилища ограничен: при
+ * переполнении вытесняются давно не использованные записи. Запись устаревает
+ * через заданное время и при изменении избранного пользователя: вместо нее
+ * остается отметка о сбросе, чтобы рекомендации, посчитанные до сброса, не
+ * были сохранены. Счетчики попаданий, промахов и вытеснений доступны через
+ * {@link #getStats()}.
+ * </p>
+ */
+@Component
+public class RecommendationStore {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(RecommendationStore.class);
+
+  // Сколько раз пересчитывать рекомендации, если запись изменилась
+  private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+  // Максимальное количество пользователей в хранилище
+  private final int capacity;
+  // Время жизни записи (мс)
+  private final long ttlMillis;
+  // Id пользователя -> рекомендации
+  private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+  // Номер последнего сброса (для проверки устаревания при записи)
+  private final AtomicLong invalidations = new AtomicLong();
+  // Номер последнего сброса всех записей
+  private volatile long clearedAt;
+
+  // Счетчики
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  public RecommendationStore(
+      @Value("${recommendations.cache.size:10000}") int capacity,
+      @Value("${recommendations.cache.ttl-minutes:1500}") long ttlMinutes) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException(
+          "recommendations cache size cannot be negative!");
+    }
+    if (ttlMinutes <= 0) {
+      throw new IllegalArgumentException(
+          "recommendations cache ttl must be positive!");
+    }
+    this.capacity = capacity;
+    this.ttlMillis = ttlMinutes * 60_000;
+  }
+
+  /**
+   * Возвращает номер сброса, который нужно получить до вычисления
+   * рекомендаций и передать в {@link #put}
+   *
+   * @return номер сброса
+   */
+  public long getVersion() {
+    return invalidations.get();
+  }
+
+  /**
+   * Возвращает рекомендации пользователя, если они есть и не устарели
+   *
+   * @param userId id пользователя
+   * @return id книг (null, если рекомендаций нет)
+   */
+  public long[] get(Long userId) {
+    Entry entry = entries.get(userId);
+    long now = System.currentTimeMillis();
+    if (entry == null || entry.list == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    if (entry.expiresAt <= now) {
+      if (entries.remove(userId, entry)) {
+        expirations.incrementAndGet();
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+    entry.lastAccess = now;
+    hits.incrementAndGet();
+    return entry.list.getIds();
+  }
+
+  /**
+   * Сохраняет рекомендации пользователя
+   *
+   * @param userId  - id пользователя
+   * @param version - номер сброса, полученный до вычисления рекомендаций
+   * @param list    - рекомендации
+   */
+  public void put(Long userId, long version, RecommendationList list) {
+    // Модель могла измениться во время вычисления
+    if (capacity == 0 || version < clearedAt) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    entries.compute(userId, (id, old) ->
+        // Избранное пользователя могло измениться во время вычисления
+        old != null && old.invalidatedAt > version ? old
+            : new Entry(list, version, now, now + ttlMillis));
+    if (entries.size() > capacity) {
+      evict(now);
+    }
+  }
+
+  /**
+   * Обновляет рекомендации пользователя на месте (после изменения его
+   * избранного). Если рекомендаций нет, оставляет отметку о сбросе: они будут
+   * посчитаны при следующем запросе
+   *
+   * <p>
+   * Новые рекомендации считаются вне блокировок хранилища и записываются,
+   * только если запись пользователя за это время не изменилась; иначе
+   * пересчитываются по новой записи. Если запись меняется постоянно, вместо
+   * нее остается отметка о сбросе.
+   * </p>
+   *
+   * @param userId - id пользователя
+   * @param update - новые рекомендации по старым
+   */
+  public void update(Long userId, UnaryOperator<RecommendationList> update) {
+    long version = invalidations.incrementAndGet();
+    for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+      long now = System.currentTimeMillis();
+      Entry old = entries.get(userId);
+      if (old == null) {
+        if (entries.putIfAbsent(userId,
+            new Entry(null, version, now, now + ttlMillis)) == null) {
+          return;
+        }
+        continue;
+      }
+      long entryVersion = Math.max(version, old.invalidatedAt);
+      Entry entry = old.list == null || old.expiresAt <= now
+          ? new Entry(null, entryVersion, now, now + ttlMillis)
+          : new Entry(update.apply(old.list), entryVersion, now,
+              old.expiresAt);
+      if (entries.replace(userId, old, entry)) {
+        return;
+      }
+    }
+    long now = System.currentTimeMillis();
+    entries.compute(userId, (id, old) -> new Entry(null,
+        old == null ? version : Math.max(version, old.invalidatedAt), now,
+        now + ttlMillis));
+  }
+
+  /**
+   * Сбрасывает все рекомендации (после пересчета похожести книг)
+   */
+  public void invalidateAll() {
+    clearedAt = invalidations.incrementAndGet();
+    entries.clear();
+  }
+
+  /**
+   * Возвращает счетчики хранилища
+   *
+   * @return счетчики
+   */
+  public Stats getStats() {
+    return new Stats(entries.size(), hits.get(), misses.get(),
+        evictions.get(), expirations.get());
+  }
+
+  // Удаляет устаревшие записи, а если их мало - давно не использованные
+  private synchronized void evict(long now) {
+    if (entries.size() <= capacity) {
+      return;
+    }
+    List<Map.Entry<Long, Entry>> alive = new ArrayList<>();
+    for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+      if (e.getValue().expiresAt <= now) {
+        if (entries.remove(e.getKey(), e.getValue())) {
+          expirations.incrementAndGet();
+        }
+      } else {
+        alive.add(e);
+      }
+    }
+    // Освобождаем десятую часть места, чтобы не обходить записи при каждой
+    // следующей записи
+    int excess = entries.size() - capacity + capacity / 10;
+    if (excess > 0) {
+      alive.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+      for (int i = 0; i < excess && i < alive.size(); i++) {
+        if (entries.remove(alive.get(i).getKey(), alive.get(i).getValue())) {
+          evictions.incrementAndGet();
+        }
+      }
+    }
+    log.debug("Recommendation store evicted: " + getStats());
+  }
+
+  /**
+   * Рекомендации пользователя
+   */
+  private static final class Entry {
+
+    // Рекомендации (null - отметка о сбросе)
+    private final RecommendationList list;
+    // Номер сброса, с которым получена запись (более старые не сохраняются)
+    private final long invalidatedAt;
+    // Когда запись устареет
+    private final long expiresAt;
+    // Время последнего обращения
+    private volatile long lastAccess;
+
+    Entry(RecommendationList list, long invalidatedAt, long lastAccess,
+        long expiresAt) {
+      this.list = list;
+      this.invalidatedAt = invalidatedAt;
+      this.lastAccess = lastAccess;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * Счетчики хранилища
+   */
+  public static final class Stats {
+
+    // Количество записей
+    private final int size;
+    // Количество попаданий
+    private final long hits;
+    // Количество промахов
+    private final long misses;
+    // Количество вытесненных из-за размера записей
+    private final long evictions;
+    // Количество устаревших по времени записей
+    private final long expirations;
+
+    Stats(int size, long hits, long misses, long evictions,
+        long expirations) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.expirations = expirations;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getExpirations() {
+      return expirations;
+    }
+
+    @Override
+    public String toString() {
+      return "size=" + size + ", hits=" + hits + ", misses=" + misses
+          + ", evictions=" + evictions + ", expirations=" + expirations;
+    }
+  }
+}
@@ -0,0 +1,344 @@
+package ru.hse.BookExchange.recommendations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Похожесть книг (item-to-item): для каждой книги - N самых похожих книг
+ *
+ * <p>
+ * Похожесть складывается из совместного добавления в избранное (косинусная
+ * мера по спискам избранного пользователей), общих жанров и общего автора.
+ * Модель неизменяема: при изменении данных строится новая модель.
+ * </p>
+ */
+public final class SimilarityModel {
+
+  // Пустая модель
+  public static final SimilarityModel EMPTY = new SimilarityModel(
+      new long[0], new int[0][], new float[0][], new long[0]);
+
+  // Вес совместного добавления в избранное (косинусная мера от 0 до 1)
+  static final float WISH_WEIGHT = 1.0F;
+  // Вес общего автора
+  static final float AUTHOR_WEIGHT = 1.0F;
+  // Вес общих жанров (умножается на долю общих жанров)
+  static final float GENRE_WEIGHT = 0.5F;
+  // Сколько лучших книг жанра рассматривать как соседей книги
+  static final int GENRE_FANOUT = 200;
+  // Погрешность сложения и вычитания очков
+  private static final float EPSILON = 1e-4F;
+
+  // Id книг по возрастанию
+  private final long[] ids;
+  // Номер книги -> номера похожих книг (по убыванию похожести)
+  private final int[][] neighbors;
+  // Номер книги -> похожесть соседей
+  private final float[][] weights;
+  // Id книг по убыванию рейтинга
+  private final long[] popular;
+
+  private SimilarityModel(long[] ids, int[][] neighbors, float[][] weights,
+      long[] popular) {
+    this.ids = ids;
+    this.neighbors = neighbors;
+    this.weights = weights;
+    this.popular = popular;
+  }
+
+  /**
+   * Строит модель
+   *
+   * @param books     - книги каталога
+   * @param wishLists - id пользователя -> id избранных книг
+   * @param size      - сколько соседей хранить для каждой книги
+   * @return модель
+   */
+  public static SimilarityModel build(Collection<Item> books,
+      Map<Long, ? extends Collection<Long>> wishLists, int size) {
+    long[] ids = books.stream().mapToLong(item -> item.id).sorted()
+        .toArray();
+    int n = ids.length;
+    Item[] items = new Item[n];
+    for (Item item : books) {
+      items[Arrays.binarySearch(ids, item.id)] = item;
+    }
+
+    // Книги по убыванию рейтинга, при равном рейтинге - новые (больший id)
+    Integer[] byRating = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      byRating[i] = i;
+    }
+    Arrays.sort(byRating, (a, b) -> items[a].rating != items[b].rating
+        ? Float.compare(items[b].rating, items[a].rating)
+        : Long.compare(ids[b], ids[a]));
+    long[] popular = new long[n];
+    for (int i = 0; i < n; i++) {
+      popular[i] = ids[byRating[i]];
+    }
+
+    // Жанр -> лучшие книги жанра, автор -> книги автора
+    Map<Long, List<Integer>> genreBooks = new HashMap<>();
+    Map<String, List<Integer>> authorBooks = new HashMap<>();
+    for (int i : byRating) {
+      for (long genre : items[i].genres) {
+        List<Integer> list = genreBooks
+            .computeIfAbsent(genre, g -> new ArrayList<>());
+        if (list.size() < GENRE_FANOUT) {
+          list.add(i);
+        }
+      }
+      String author = normalizeAuthor(items[i].author);
+      if (!author.isEmpty()) {
+        authorBooks.computeIfAbsent(author, a -> new ArrayList<>()).add(i);
+      }
+    }
+
+    // Списки избранного в номерах книг и пользователи каждой книги
+    List<int[]> wishes = new ArrayList<>();
+    List<List<Integer>> wishers = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      wishers.add(new ArrayList<>());
+    }
+    for (Collection<Long> wishList : wishLists.values()) {
+      int[] wished = wishList.stream().distinct()
+          .mapToInt(id -> Arrays.binarySearch(ids, id)).filter(i -> i >= 0)
+          .toArray();
+      for (int i : wished) {
+        wishers.get(i).add(wishes.size());
+      }
+      wishes.add(wished);
+    }
+
+    int[][] neighbors = new int[n][];
+    float[][] weights = new float[n][];
+    float[] scores = new float[n];
+    List<Integer> touched = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      // Совместное добавление в избранное: |A ∩ B| / sqrt(|A| * |B|)
+      for (int user : wishers.get(i)) {
+        for (int j : wishes.get(user)) {
+          add(scores, touched, j, WISH_WEIGHT / (float) Math
+              .sqrt((double) wishers.get(i).size() * wishers.get(j).size()));
+        }
+      }
+      // Общие жанры
+      long[] genres = items[i].genres;
+      for (long genre : genres) {
+        for (int j : genreBooks.get(genre)) {
+          add(scores, touched, j, GENRE_WEIGHT / genres.length);
+        }
+      }
+      // Общий автор
+      String author = normalizeAuthor(items[i].author);
+      for (int j : authorBooks.getOrDefault(author, List.of())) {
+        add(scores, touched, j, AUTHOR_WEIGHT);
+      }
+
+      scores[i] = 0;
+      selectNeighbors(i, scores, touched, ids, size, neighbors, weights);
+      for (int j : touched) {
+        scores[j] = 0;
+      }
+      touched.clear();
+    }
+    return new SimilarityModel(ids, neighbors, weights, popular);
+  }
+
+  /**
+   * Рекомендует книги по избранным книгам: объединяет списки их соседей
+   *
+   * @param wished   - id избранных книг
+   * @param minSize  - сколько книг нужно как минимум (недостающие добираются
+   *                 книгами из fallback, затем книгами с наибольшим
+   *                 рейтингом)
+   * @param fallback - id книг для добора (может быть null)
+   * @return рекомендованные книги по убыванию похожести
+   */
+  public RecommendationList recommend(Collection<Long> wished, int minSize,
+      long[] fallback) {
+    Set<Integer> exclude = indexesOf(wished);
+    Map<Integer, Float> scores = new HashMap<>();
+    for (int i : exclude) {
+      for (int k = 0; k < neighbors[i].length; k++) {
+        int j = neighbors[i][k];
+        if (!exclude.contains(j)) {
+          scores.merge(j, weights[i][k], Float::sum);
+        }
+      }
+    }
+    return toList(scores, exclude, minSize, fallback);
+  }
+
+  /**
+   * Обновляет рекомендации после добавления книги в избранное или удаления
+   * из него: добавляет или вычитает очки соседей только этой книги
+   *
+   * @param list     - рекомендации до изменения избранного
+   * @param wished   - id избранных книг после изменения
+   * @param bookId   - id добавленной или удаленной книги
+   * @param added    - добавлена ли книга (иначе удалена)
+   * @param minSize  - сколько книг нужно как минимум
+   * @param fallback - id книг для добора (может быть null)
+   * @return новые рекомендации
+   */
+  public RecommendationList update(RecommendationList list,
+      Collection<Long> wished, long bookId, boolean added, int minSize,
+      long[] fallback) {
+    Set<Integer> exclude = indexesOf(wished);
+    Map<Integer, Float> scores = new HashMap<>();
+    long[] listIds = list.getIds();
+    float[] listScores = list.getScores();
+    for (int k = 0; k < listScores.length; k++) {
+      int j = Arrays.binarySearch(ids, listIds[k]);
+      if (j >= 0 && !exclude.contains(j)) {
+        scores.put(j, listScores[k]);
+      }
+    }
+
+    int b = Arrays.binarySearch(ids, bookId);
+    if (b >= 0) {
+      float sign = added ? 1 : -1;
+      for (int k = 0; k < neighbors[b].length; k++) {
+        int j = neighbors[b][k];
+        if (!exclude.contains(j)) {
+          scores.merge(j, sign * weights[b][k], Float::sum);
+        }
+      }
+      if (!added) {
+        // Удаленная книга снова может быть рекомендована
+        float score = 0;
+        for (int i : exclude) {
+          score += getWeight(i, b);
+        }
+        scores.put(b, score);
+      }
+    }
+    // Отбрасываем книги, похожесть которых ушла в ноль (с погрешностью)
+    scores.values().removeIf(score -> score <= EPSILON);
+    return toList(scores, exclude, minSize, fallback);
+  }
+
+  // Возвращает номера книг по id (неизвестные id пропускаются)
+  private Set<Integer> indexesOf(Collection<Long> bookIds) {
+    Set<Integer> res = new HashSet<>();
+    for (Long id : bookIds) {
+      int i = Arrays.binarySearch(ids, id);
+      if (i >= 0) {
+        res.add(i);
+      }
+    }
+    return res;
+  }
+
+  // Возвращает похожесть книги j на книгу i (0, если j нет среди соседей i)
+  private float getWeight(int i, int j) {
+    for (int k = 0; k < neighbors[i].length; k++) {
+      if (neighbors[i][k] == j) {
+        return weights[i][k];
+      }
+    }
+    return 0;
+  }
+
+  // Сортирует книги по очкам и добирает книгами из fallback и книгами с
+  // наибольшим рейтингом
+  private RecommendationList toList(Map<Integer, Float> scores,
+      Set<Integer> exclude, int minSize, long[] fallback) {
+    List<Integer> ranked = new ArrayList<>(scores.keySet());
+    ranked.sort((a, b) -> !scores.get(a).equals(scores.get(b))
+        ? Float.compare(scores.get(b), scores.get(a))
+        : Integer.compare(a, b));
+
+    long[] res = new long[Math.max(ranked.size(), Math.min(minSize, n()))];
+    float[] resScores = new float[ranked.size()];
+    int size = 0;
+    for (int i : ranked) {
+      resScores[size] = scores.get(i);
+      res[size++] = ids[i];
+    }
+    // Добираем книгами из fallback, затем книгами с наибольшим рейтингом
+    Set<Integer> added = new HashSet<>();
+    for (long[] source : new long[][]{fallback == null ? new long[0]
+        : fallback, popular}) {
+      for (int k = 0; k < source.length && size < res.length; k++) {
+        int i = Arrays.binarySearch(ids, source[k]);
+        if (i >= 0 && !exclude.contains(i) && !scores.containsKey(i)
+            && added.add(i)) {
+          res[size++] = source[k];
+        }
+      }
+    }
+    return new RecommendationList(
+        size == res.length ? res : Arrays.copyOf(res, size), resScores);
+  }
+
+  // Количество книг в модели
+  private int n() {
+    return ids.length;
+  }
+
+  // Добавляет очки книге j
+  private static void add(float[] scores, List<Integer> touched, int j,
+      float score) {
+    if (scores[j] == 0) {
+      touched.add(j);
+    }
+    scores[j] += score;
+  }
+
+  // Выбирает size лучших соседей книги i
+  private static void selectNeighbors(int i, float[] scores,
+      List<Integer> touched, long[] ids, int size, int[][] neighbors,
+      float[][] weights) {
+    int[] candidates = touched.stream().mapToInt(Integer::intValue)
+        .filter(j -> j != i && scores[j] > 0).toArray();
+    Integer[] order = new Integer[candidates.length];
+    for (int k = 0; k < order.length; k++) {
+      order[k] = candidates[k];
+    }
+    Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+        ? Float.compare(scores[b], scores[a]) : Long.compare(ids[a], ids[b]));
+    int count = Math.min(size, order.length);
+    neighbors[i] = new int[count];
+    weights[i] = new float[count];
+    for (int k = 0; k < count; k++) {
+      neighbors[i][k] = order[k];
+      weights[i][k] = scores[order[k]];
+    }
+  }
+
+  // Приводит автора к виду для сравнения
+  private static String normalizeAuthor(String author) {
+    return author == null ? "" : author.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Книга каталога для построения модели
+   */
+  public static final class Item {
+
+    // Id книги
+    private final long id;
+    // Автор книги
+    private final String author;
+    // Id жанров книги
+    private final long[] genres;
+    // Рейтинг книги
+    private final float rating;
+
+    public Item(long id, String author, long[] genres, float rating) {
+      this.id = id;
+      this.author = author;
+      this.genres = genres;
+      this.rating = rating;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package ru.hse.BookExchange.repositories;
 
+import java.util.List;
 import javax.transaction.Transactional;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.hse.BookExchange.models.BookBaseRate;
 
@@ -12,6 +14,31 @@ import ru.hse.BookExchange.models.BookBaseRate;
 public interface BookBaseRateRepository extends
     DatedEntityRepository<BookBaseRate> {
 
+  /**
+   * Возвращает средние оценки всех оцененных книг
+   *
+   * @return пары (id книги, средняя оценка)
+   */
+  @Query("select r.ratedBookBase.id, avg(r.rate) from BookBaseRate r"
+      + " group by r.ratedBookBase.id")
+  List<Object[]> findAllRatings();
+
+  /**
+   * Возвращает все оценки книг
+   *
+   * @return тройки (id создателя, id книги, оценка)
+   */
+  @Query("select r.creator.id, r.ratedBookBase.id, r.rate from BookBaseRate r"
+      + " where r.rate is not null")
+  List<Object[]> findAllUserRates();
+
+  /**
+   * Возвращает id всех пользователей, оценивших хотя бы одну книгу
+   *
+   * @return id пользователей
+   */
+  @Query("select distinct r.creator.id from BookBaseRate r")
+  List<Long> findAllCreatorIds();
 }
 
 
@@ -1,21 +1,18 @@
 package ru.hse.BookExchange.repositories;
 
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
 import java.util.stream.Collectors;
 import javax.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.hse.BookExchange.models.BookBase;
 import ru.hse.BookExchange.models.BookBaseRequest;
-import ru.hse.BookExchange.models.Genre;
-import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.projections.BookBaseView;
 
 /**
  * Репозиторий книг (bookBase)
@@ -24,9 +21,6 @@ import ru.hse.BookExchange.models.User;
 @Transactional
 public interface BookBaseRepository extends DatedEntityRepository<BookBase> {
 
-  // Очки, набранные при поиске
-  Map<List<String>, Integer> scores = new HashMap<>();
-
   /**
    * Возвращает все книги (bookBase), игнорируя BookBaseRequest
    *
@@ -38,225 +32,168 @@ public interface BookBaseRepository extends DatedEntityRepository<BookBase> {
             Collectors.toList());
   }
 
-  default List<BookBase> findByGenre(List<Long> genreIds) {
-    return findAllBookBases().stream()
-        .filter((bookBase -> bookBase.getGenreIds().containsAll(genreIds)))
-        .collect(
-            Collectors.toList());
-  }
-
   /**
-   * Получает список рекомендованных книг для пользователя
+   * Возвращает пары (id книги, автор) всех книг, игнорируя BookBaseRequest
    *
-   * @param user - пользователь
-   * @return список рекомендованных книг
+   * @return пары (id, автор)
    */
-  default List<BookBase> getRecommendations(User user) {
-    List<BookBase> bookBases = new ArrayList<>();
-
-    List<Genre> genres = new ArrayList<>();
-    for (BookBase base : user.getWishList()) {
-      genres.addAll(base.getGenres());
-    }
-    genres = genres.stream().distinct().collect(Collectors.toList());
-
-    for (Genre genre : genres) {
-      var a = findByGenre(List.of(genre.getId()));
-      bookBases.addAll(findByGenre(List.of(genre.getId())));
-    }
-
-    for (BookBase base : findAllBookBases()) {
-      if (user.getWishList().stream()
-          .anyMatch(
-              (wishedBook) -> base.getAuthor()
-                  .equals(wishedBook.getAuthor()))) {
-        bookBases.add(base);
-      }
-    }
-
-    // Перемешиваем книги
-    Collections.shuffle(bookBases,
-        new Random(ChronoUnit.DAYS.between(LocalDate.of(2000, 1, 1),
-            LocalDate.now())));
-    // Удаляем повторы
-    return bookBases.stream().distinct().collect(Collectors.toList());
-  }
+  @Query("select b.id, b.author from BookBase b where type(b) = BookBase")
+  List<Object[]> findAllAuthors();
 
   /**
-   * Ищет кники (bookBase) по совпадению названия
+   * Возвращает id страницы книг, игнорируя BookBaseRequest
    *
-   * @param searchText - строка поиска
-   * @return список наиболее подходящих книг
+   * @param pageable - страница и порядок книг
+   * @return id книг страницы
    */
-  default List<BookBase> searchByTitle(String searchText, int limit,
-      int skip) {
-    // Ключевые слова
-    String[] searchWords = getSearchWords(searchText);
-
-    return search(Comparator.comparingInt(
-        bookBase ->
-            // Ищем по названию книги
-            -getSearchScore(List.of(bookBase.getTitle()),
-                searchWords)), limit, skip);
-  }
+  @Query("select b.id from BookBase b where type(b) = BookBase")
+  List<Long> findBookBaseIds(Pageable pageable);
 
   /**
-   * Ищет кники (bookBase) по совпадению автора
+   * Возвращает id книг по убыванию байесовской оценки после указанной книги
+   * (без пропуска строк: чтение идет по индексу рейтинга с позиции книги)
    *
-   * @param searchText - строка поиска
-   * @return список наиболее подходящих книг
+   * @param score    - байесовская оценка последней книги предыдущей страницы
+   * @param id       - id последней книги предыдущей страницы
+   * @param pageable - размер страницы
+   * @return id книг страницы
    */
-  default List<BookBase> searchByAuthor(String searchText, int limit,
-      int skip) {
-    // Ключевые слова
-    String[] searchWords = getSearchWords(searchText);
-
-    return search(Comparator.comparingInt(
-        bookBase ->
-            // Ищем по автору книги
-            -getSearchScore(List.of(bookBase.getAuthor()),
-                searchWords)), limit, skip);
-  }
+  @Query("select b.id from BookBase b where type(b) = BookBase"
+      + " and (b.ratingScore < :score"
+      + " or (b.ratingScore = :score and b.id < :id))"
+      + " order by b.ratingScore desc, b.id desc")
+  List<Long> findBookBaseIdsByScoreAfter(@Param("score") float score,
+      @Param("id") Long id, Pageable pageable);
 
   /**
-   * Ищет кники (bookBase) по совпадению автора и/или названия
+   * Возвращает id книг от новых к старым после указанной книги (без
+   * пропуска строк: чтение идет по индексу даты создания с позиции книги)
    *
-   * @param searchText - строка поиска
-   * @return список наиболее подходящих книг
+   * @param date     - дата создания последней книги предыдущей страницы
+   * @param id       - id последней книги предыдущей страницы
+   * @param pageable - размер страницы
+   * @return id книг страницы
    */
-  default List<BookBase> searchByText(String searchText, int limit, int skip) {
-    // Ключевые слова
-    String[] searchWords = getSearchWords(searchText);
-
-    return search(Comparator.comparingInt(
-        bookBase ->
-            // Ищем в названии и авторе книги
-            -getSearchScore(List.of(bookBase.getAuthor(), bookBase.getTitle()),
-                searchWords)), limit, skip);
-  }
+  @Query("select b.id from BookBase b where type(b) = BookBase"
+      + " and (b.creationDate < :date"
+      + " or (b.creationDate = :date and b.id < :id))"
+      + " order by b.creationDate desc, b.id desc")
+  List<Long> findBookBaseIdsCreatedBefore(@Param("date") Date date,
+      @Param("id") Long id, Pageable pageable);
 
-  private List<BookBase> search(Comparator<BookBase> comparator,
-      int limit, int skip) {
-    // Сортируем книги по набранным при поиске очкам
-    List<BookBase> res = findAllBookBases().stream().sorted(comparator)
-        .skip(skip).limit(limit).collect(Collectors.toList());
-    // Очищаем кешированные очки после поиска
-    scores.clear();
-    return res;
-  }
+  /**
+   * Возвращает id книг от старых к новым после указанной книги
+   *
+   * @param date     - дата создания последней книги предыдущей страницы
+   * @param id       - id последней книги предыдущей страницы
+   * @param pageable - размер страницы
+   * @return id книг страницы
+   */
+  @Query("select b.id from BookBase b where type(b) = BookBase"
+      + " and (b.creationDate > :date"
+      + " or (b.creationDate = :date and b.id > :id))"
+      + " order by b.creationDate asc, b.id asc")
+  List<Long> findBookBaseIdsCreatedAfter(@Param("date") Date date,
+      @Param("id") Long id, Pageable pageable);
 
   /**
-   * Определяет релевантность книги (BookBase) при поиске
+   * Возвращает поля книг без связанных записей
    *
-   * @param strings     - строки с которой проверяем совпадения
-   * @param searchWords - ключевые слова для поиска
-   * @return количество набранных очков
+   * @param ids - id книг
+   * @return книги (в любом порядке)
    */
-  private int getSearchScore(List<String> strings,
-      String[] searchWords) {
+  @Query("select new ru.hse.BookExchange.models.projections.BookBaseView("
+      + "b.id, b.creationDate, b.author, b.language, b.title,"
+      + " b.numberOfPages, b.publishYear, b.description, b.ratingAverage,"
+      + " b.ratingScore, p.id) from BookBase b left join b.photo p"
+      + " where b.id in :ids")
+  List<BookBaseView> findViews(@Param("ids") Collection<Long> ids);
 
-    if (scores.containsKey(strings)) {
-      return scores.get(strings);
-    }
-    int score = 0;
-    for (String word : searchWords) {
-      /* Ищем совпадения с каждой сторокой из strings */
-      for (String str : strings) {
-        int best = 0;
-        /* Ищем наилучшее совпадения среди слов в str */
-        for (String strWord : str.split("\\s")) {
-          best = Math.max(best, compareStrings(strWord, word));
-        }
-        // Добавляем к очкам наилучшее совпадение
-        score += best;
-      }
-    }
-    scores.put(strings, score);
-    return score;
-  }
+  /**
+   * Возвращает пары (id книги, id жанра) книг
+   *
+   * @param ids - id книг
+   * @return пары id
+   */
+  @Query("select b.id, g.id from Genre g join g.bookBases b"
+      + " where b.id in :ids order by g.id")
+  List<Object[]> findGenreIds(@Param("ids") Collection<Long> ids);
 
+  /**
+   * Возвращает четверки (id книги, id книги для передачи, доступность, id
+   * владельца) книг
+   *
+   * @param ids - id книг
+   * @return четверки (id bookBase, id book, доступность, id владельца)
+   */
+  @Query("select b.base.id, b.id, b.publicityStatus, b.owner.id from Book b"
+      + " where b.base.id in :ids order by b.id")
+  List<Object[]> findBookIds(@Param("ids") Collection<Long> ids);
 
-  // Сравнивает строки на схожесть
-  private int compareStrings(String where, String what) {
-    String lowerWhere = where.toLowerCase();
-    int maxSize = Math.max(what.length(), lowerWhere.length());
-    // Счет = максимальное расстояние Левенштейна - фактическое
-    return (maxSize - getDamerauLevenshteinDistance(lowerWhere, what));
-  }
+  /**
+   * Возвращает пары (id книги, id пользователя, добавившего ее в избранное)
+   *
+   * @param ids - id книг
+   * @return пары id
+   */
+  @Query("select b.id, u.id from User u join u.wishList b"
+      + " where b.id in :ids order by u.id")
+  List<Object[]> findWishersIds(@Param("ids") Collection<Long> ids);
 
   /**
-   * Определяет модифицированное расстояние Дамерау-Левенштейна адаптированным
-   * алгоритмом Вагнера-Фишера
+   * Возвращает среднюю оценку оцененных книг, игнорируя BookBaseRequest
    *
-   * <p>
-   * Модифицированность означает следующее: Если обнаружено совпадения
-   * нескольких символов подряд - расстояние будет не сохранено тем же, а
-   * уменьшено. Например, расстояние будет меньше, если одна из строк вложена в
-   * другую, нежели если она будет являться только подстрокой.
-   * </p>
+   * @return средняя оценка (null - оцененных книг нет)
+   */
+  @Query("select avg(b.ratingAverage) from BookBase b"
+      + " where type(b) = BookBase and b.ratingCount > 0")
+  Double findAverageRating();
+
+  /**
+   * Атомарно изменяет сумму и количество оценок книги в бд и пересчитывает
+   * среднюю и байесовскую оценки (книга без оценок получает оценку 0)
    *
-   * @param s - 1я строка
-   * @param t - 2я строка
-   * @return расстояние Левенштейна
+   * @param id         - id книги
+   * @param delta      - на сколько изменить сумму оценок
+   * @param count      - на сколько изменить количество оценок
+   * @param priorMean  - априорная средняя оценка
+   * @param priorCount - вес априорной оценки
+   * @return количество измененных записей
    */
-  private int getDamerauLevenshteinDistance(String s, String t) {
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update book_base set"
+      + " rating_sum = coalesce(rating_sum, 0) + :delta,"
+      + " rating_count = coalesce(rating_count, 0) + :count,"
+      + " rating_average = coalesce((coalesce(rating_sum, 0) + :delta)"
+      + " / nullif(coalesce(rating_count, 0) + :count, 0), 0),"
+      + " rating_score = case when coalesce(rating_count, 0) + :count > 0"
+      + " then (:priorMean * :priorCount + coalesce(rating_sum, 0) + :delta)"
+      + " / (:priorCount + coalesce(rating_count, 0) + :count) else 0 end"
+      + " where id = :id", nativeQuery = true)
+  int updateRating(@Param("id") Long id, @Param("delta") double delta,
+      @Param("count") int count, @Param("priorMean") double priorMean,
+      @Param("priorCount") int priorCount);
 
-    // Размеры строк
-    int sLen = s.length(), tLen = t.length();
-    // Массив количества шагов на каждом этапе обработки
-    int[][] costs = new int[sLen + 1][tLen + 1];
-    // Заполняем его нулями
-    for (int i = 0; i <= sLen; ++i) {
-      for (int j = 0; j <= tLen; ++j) {
-        costs[i][j] = 0;
-      }
-    }
-    // Заполняем случаи, когда одна из строк пустая
-    for (int i = 0; i <= sLen; ++i) {
-      costs[i][0] = i;
-    }
-    for (int j = 1; j <= tLen; ++j) {
-      costs[0][j] = j;
-    }
-    // Количество шагов точки пути, используемой при смене символов местами
-    int switchVal;
-    // Теперь из [1, 1] идем в [sLen, tLen]
-    for (int i = 1; i <= sLen; ++i) {
-      for (int j = 1; j <= tLen; ++j) {
-        // Если символы равны, дополнительных действий делать не надо
-        if (s.charAt(i - 1) == t.charAt(j - 1)) {
-          costs[i][j] = costs[i - 1][j - 1];
-          /* Если и на прошлой шаге было совпадение,
-             уменьшаем расстояние (чтобы увеличить очки)  */
-          if (i - 2 >= 0 && j - 2 >= 0 && s.charAt(i - 2) == t.charAt(j - 2)) {
-            costs[i][j]--;
-          }
-        } else {
-          /* Если имеет смысл менять символы местами, добавим соответствующую
-           * точку пути к прочим вариантам продолжения пути  */
-          if (i > 1 && j > 1 && s.charAt(i - 1) == t.charAt(j - 2)
-              && s.charAt(i - 2) == t.charAt(j - 1)) {
-            switchVal = costs[i - 2][j - 2];
-          } else {
-            /* Иначе присвоим switchVal максимальное значение,
-               чтобы мы его точно не выбрали */
-            switchVal = Integer.MAX_VALUE;
-          }
-          /* Выберем путь, где мы сделали меньше всего действий,
-             и продолжим от него */
-          costs[i][j] = 1 + Math.min(costs[i - 1][j],
-              Math.min(costs[i][j - 1],
-                  Math.min(costs[i - 1][j - 1], switchVal)));
-        }
-      }
-    }
-    return costs[sLen][tLen];
-  }
+  /**
+   * Пересчитывает байесовские оценки всех книг (книги без оценок получают
+   * оценку 0)
+   *
+   * @param priorMean  - априорная средняя оценка
+   * @param priorCount - вес априорной оценки
+   * @return количество измененных записей
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "update book_base set rating_score ="
+      + " case when coalesce(rating_count, 0) > 0"
+      + " then (:priorMean * :priorCount + rating_sum)"
+      + " / (:priorCount + rating_count) else 0 end", nativeQuery = true)
+  int updateRatingScores(@Param("priorMean") double priorMean,
+      @Param("priorCount") int priorCount);
 
-  private String[] getSearchWords(String searchText) {
-    return searchText.toLowerCase().split("\\s");
+  default List<BookBase> findByGenre(List<Long> genreIds) {
+    return findAllBookBases().stream()
+        .filter((bookBase -> bookBase.getGenreIds().containsAll(genreIds)))
+        .collect(
+            Collectors.toList());
   }
-
 }
-
-
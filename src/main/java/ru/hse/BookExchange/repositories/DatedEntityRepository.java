@@ -1,6 +1,14 @@
 package ru.hse.BookExchange.repositories;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import ru.hse.BookExchange.exceptions.EntityNotFoundException;
 import ru.hse.BookExchange.models.abstractions.DatedEntity;
 
 /**
@@ -9,4 +17,81 @@ import ru.hse.BookExchange.models.abstractions.DatedEntity;
 public interface DatedEntityRepository<T extends DatedEntity> extends
     JpaRepository<T, Long> {
 
+  // Сколько id передавать в одном запросе (IN)
+  int ID_CHUNK_SIZE = 1000;
+
+  /**
+   * Возвращает страницу записей, подходящих под условие (реализован в
+   * PagingRepository)
+   *
+   * @param filter   - условие (null, если подходят все записи)
+   * @param pageable - страница и порядок записей
+   * @return записи страницы
+   */
+  List<T> findPage(Specification<T> filter, Pageable pageable);
+
+  /**
+   * Возвращает id записей страницы, подходящих под условие (реализован в
+   * PagingRepository)
+   *
+   * @param filter   - условие (null, если подходят все записи)
+   * @param pageable - страница и порядок записей
+   * @return id записей страницы
+   */
+  List<Long> findPageIds(Specification<T> filter, Pageable pageable);
+
+  /**
+   * Загружает записи одной выборкой, сохраняя порядок id
+   *
+   * @param ids id записей
+   * @return найденные записи в порядке ids (удаленные записи пропускаются)
+   */
+  default List<T> findAllByIdInOrder(List<Long> ids) {
+    Map<Long, T> found = findAllByIdAsMap(ids);
+    List<T> res = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      if (found.containsKey(id)) {
+        res.add(found.get(id));
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Загружает записи одной выборкой, сохраняя порядок id
+   *
+   * @param ids          - id записей
+   * @param entitiesName - название записей для сообщения об ошибке
+   * @return записи в порядке ids
+   * @throws EntityNotFoundException - со всеми ненайденными id
+   */
+  default List<T> findAllByIdInOrder(List<Long> ids, String entitiesName) {
+    Map<Long, T> found = findAllByIdAsMap(ids);
+    List<T> res = new ArrayList<>(ids.size());
+    List<Long> missing = new ArrayList<>();
+    for (Long id : ids) {
+      if (found.containsKey(id)) {
+        res.add(found.get(id));
+      } else {
+        missing.add(id);
+      }
+    }
+    if (!missing.isEmpty()) {
+      throw new EntityNotFoundException(entitiesName, missing);
+    }
+    return res;
+  }
+
+  // Загружает записи по id частями по ID_CHUNK_SIZE (повторы id не запрашиваются)
+  private Map<Long, T> findAllByIdAsMap(List<Long> ids) {
+    List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<Long, T> found = new HashMap<>();
+    for (int from = 0; from < distinct.size(); from += ID_CHUNK_SIZE) {
+      for (T entity : findAllById(distinct.subList(from,
+          Math.min(from + ID_CHUNK_SIZE, distinct.size())))) {
+        found.put(entity.getId(), entity);
+      }
+    }
+    return found;
+  }
 }
@@ -1,6 +1,8 @@
 package ru.hse.BookExchange.repositories;
 
+import java.util.List;
 import javax.transaction.Transactional;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.hse.BookExchange.models.Genre;
 
@@ -11,6 +13,14 @@ import ru.hse.BookExchange.models.Genre;
 @Transactional
 public interface GenreRepository extends DatedEntityRepository<Genre> {
 
+  /**
+   * Возвращает все пары (id книги, id жанра), игнорируя BookBaseRequest
+   *
+   * @return пары id
+   */
+  @Query("select b.id, g.id from Genre g join g.bookBases b"
+      + " where type(b) = BookBase")
+  List<Object[]> findAllBookBaseGenres();
 }
 
 
@@ -0,0 +1,81 @@
+package ru.hse.BookExchange.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Страница запроса по (skip, limit)
+ *
+ * <p>
+ * PageRequest задает страницу номером, поэтому skip должен делиться на
+ * limit. Эта страница передает в бд ровно OFFSET skip LIMIT limit.
+ * </p>
+ */
+public final class OffsetPageRequest implements Pageable {
+
+  // Сколько пропустить
+  private final long offset;
+  // Сколько вернуть
+  private final int limit;
+  // Порядок записей
+  private final Sort sort;
+
+  /**
+   * Создает страницу
+   *
+   * @param offset - сколько пропустить
+   * @param limit  - сколько вернуть (больше 0)
+   * @param sort   - порядок записей
+   */
+  public OffsetPageRequest(long offset, int limit, Sort sort) {
+    if (offset < 0 || limit <= 0) {
+      throw new IllegalArgumentException(
+          "skip cannot be negative and limit must be positive!");
+    }
+    this.offset = offset;
+    this.limit = limit;
+    this.sort = sort;
+  }
+
+  @Override
+  public int getPageNumber() {
+    return (int) (offset / limit);
+  }
+
+  @Override
+  public int getPageSize() {
+    return limit;
+  }
+
+  @Override
+  public long getOffset() {
+    return offset;
+  }
+
+  @Override
+  public Sort getSort() {
+    return sort;
+  }
+
+  @Override
+  public Pageable next() {
+    return new OffsetPageRequest(offset + limit, limit, sort);
+  }
+
+  @Override
+  public Pageable previousOrFirst() {
+    return hasPrevious()
+        ? new OffsetPageRequest(Math.max(0, offset - limit), limit, sort)
+        : first();
+  }
+
+  @Override
+  public Pageable first() {
+    return new OffsetPageRequest(0, limit, sort);
+  }
+
+  @Override
+  public boolean hasPrevious() {
+    return offset > 0;
+  }
+}
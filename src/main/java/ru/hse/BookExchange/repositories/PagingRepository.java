@@ -0,0 +1,75 @@
+package ru.hse.BookExchange.repositories;
+
+import java.io.Serializable;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+/**
+ * Базовая реализация репозиториев
+ *
+ * <p>
+ * Добавляет выборку страницы записей (или только их id) по условию. В
+ * отличие от findAll(Specification, Pageable) не считает количество всех
+ * подходящих записей отдельным запросом.
+ * </p>
+ *
+ * @param <T>  - класс записи
+ * @param <ID> - класс id записи
+ */
+public class PagingRepository<T, ID extends Serializable> extends
+    SimpleJpaRepository<T, ID> {
+
+  private final EntityManager entityManager;
+
+  public PagingRepository(JpaEntityInformation<T, ?> entityInformation,
+      EntityManager entityManager) {
+    super(entityInformation, entityManager);
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Возвращает страницу записей, подходящих под условие
+   *
+   * @param filter   - условие (null, если подходят все записи)
+   * @param pageable - страница и порядок записей
+   * @return записи страницы
+   */
+  public List<T> findPage(Specification<T> filter, Pageable pageable) {
+    TypedQuery<T> query = getQuery(filter, pageable.getSort());
+    query.setFirstResult((int) pageable.getOffset());
+    query.setMaxResults(pageable.getPageSize());
+    return query.getResultList();
+  }
+
+  /**
+   * Возвращает id записей страницы, подходящих под условие (записи не
+   * загружаются)
+   *
+   * @param filter   - условие (null, если подходят все записи)
+   * @param pageable - страница и порядок записей
+   * @return id записей страницы
+   */
+  public List<Long> findPageIds(Specification<T> filter, Pageable pageable) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<T> root = query.from(getDomainClass());
+    query.select(root.get("id"));
+    if (filter != null) {
+      query.where(filter.toPredicate(root, query, builder));
+    }
+    query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+    return entityManager.createQuery(query)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
+  }
+}
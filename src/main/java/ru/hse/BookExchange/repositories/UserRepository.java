@@ -1,8 +1,13 @@
 package ru.hse.BookExchange.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import javax.transaction.Transactional;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.projections.UserView;
 
 /**
  * Репозиторий пользователей
@@ -12,6 +17,87 @@ import ru.hse.BookExchange.models.User;
 public interface UserRepository extends DatedEntityRepository<User> {
 
   User findByUsername(String username);
+
+  /**
+   * Возвращает все пары (id пользователя, id избранной книги)
+   *
+   * @return пары id
+   */
+  @Query("select u.id, b.id from User u join u.wishList b")
+  List<Object[]> findAllWishes();
+
+  /**
+   * Возвращает поля пользователей без связанных записей
+   *
+   * @param ids - id пользователей
+   * @return пользователи (в любом порядке)
+   */
+  @Query("select new ru.hse.BookExchange.models.projections.UserView(u.id,"
+      + " u.creationDate, u.role, u.username, u.name, t.id, u.isBlocked, a.id)"
+      + " from User u left join u.town t left join u.avatar a"
+      + " where u.id in :ids")
+  List<UserView> findViews(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Возвращает тройки (id владельца, id книги, доступность) книг для
+   * передачи пользователей
+   *
+   * @param ids - id пользователей
+   * @return тройки (id пользователя, id книги, доступность)
+   */
+  @Query("select b.owner.id, b.id, b.publicityStatus from Book b"
+      + " where b.owner.id in :ids order by b.id")
+  List<Object[]> findExchangeListIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Возвращает пары (id пользователя, id избранной книги) пользователей
+   *
+   * @param ids - id пользователей
+   * @return пары id
+   */
+  @Query("select u.id, b.id from User u join u.wishList b"
+      + " where u.id in :ids order by b.id")
+  List<Object[]> findWishListIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Возвращает пары (id пользователя, id запроса на добавление книги)
+   *
+   * @param ids - id пользователей
+   * @return пары id
+   */
+  @Query("select r.creator.id, r.id from BookBaseRequest r"
+      + " where r.creator.id in :ids order by r.id")
+  List<Object[]> findBookBaseAddRequestIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Возвращает пары (id пользователя, id жалобы)
+   *
+   * @param ids - id пользователей
+   * @return пары id
+   */
+  @Query("select c.creator.id, c.id from Complaint c"
+      + " where c.creator.id in :ids order by c.id")
+  List<Object[]> findComplaintIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Возвращает пары (id отдающего пользователя, id запроса на передачу)
+   *
+   * @param ids - id пользователей
+   * @return пары id
+   */
+  @Query("select r.userFrom.id, r.id from BookExchangeRequest r"
+      + " where r.userFrom.id in :ids order by r.id")
+  List<Object[]> findOutcomingRequestIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Возвращает пары (id получающего пользователя, id запроса на передачу)
+   *
+   * @param ids - id пользователей
+   * @return пары id
+   */
+  @Query("select r.userTo.id, r.id from BookExchangeRequest r"
+      + " where r.userTo.id in :ids order by r.id")
+  List<Object[]> findIncomingRequestIds(@Param("ids") Collection<Long> ids);
 }
 
 
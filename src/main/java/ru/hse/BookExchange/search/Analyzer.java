@@ -0,0 +1,64 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Анализатор поиска: цепочка фильтров, превращающая нормализованное слово в
+ * набор вариантов (основы, общая латинская запись)
+ *
+ * <p>
+ * Разбиение на слова и приведение к нижнему регистру выполняет
+ * TextNormalizer, остальные фильтры задаются свойством
+ * search.analyzer.filters: stem (стеммер), translit (транслитерация).
+ * Слова с общим вариантом совпадают без подсчета расстояния.
+ * </p>
+ */
+@Component
+public class Analyzer {
+
+  // Фильтры в порядке применения
+  private final List<TokenFilter> filters = new ArrayList<>();
+
+  public Analyzer(
+      @Value("${search.analyzer.filters:stem,translit}") String[] filters) {
+    for (String name : filters) {
+      switch (name.trim()) {
+        case "":
+          break;
+        case "stem":
+          this.filters.add(new StemFilter());
+          break;
+        case "translit":
+          this.filters.add(new TransliterationFilter());
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "Unknown search analyzer filter: " + name);
+      }
+    }
+  }
+
+  /**
+   * Возвращает варианты нормализованного слова
+   *
+   * @param token слово
+   * @return различные варианты слова
+   */
+  public String[] analyze(String token) {
+    Set<String> variants = new LinkedHashSet<>();
+    variants.add(token);
+    for (TokenFilter filter : filters) {
+      Set<String> next = new LinkedHashSet<>();
+      for (String variant : variants) {
+        next.addAll(filter.filter(variant));
+      }
+      variants = next;
+    }
+    return variants.toArray(new String[0]);
+  }
+}
@@ -0,0 +1,125 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import ru.hse.BookExchange.search.EditDistance.Pattern;
+
+/**
+ * BK-дерево (метрическое дерево) слов словаря по расстоянию Левенштейна
+ *
+ * <p>
+ * Позволяет найти все слова на расстоянии не больше k от ключевого, не
+ * сравнивая ключевое слово с каждым словом словаря: по неравенству
+ * треугольника обходятся только поддеревья с ребрами в [d - k; d + k].
+ * Дерево неизменяемо после построения, поэтому его можно читать из любого
+ * количества потоков; при изменении словаря строится новое дерево.
+ * </p>
+ */
+public final class BkTree {
+
+  // Пустое дерево
+  public static final BkTree EMPTY = new BkTree(List.of());
+
+  // Корень дерева (null, если дерево пустое)
+  private final Node root;
+  // Количество слов в дереве
+  private final int size;
+
+  /**
+   * Строит дерево по словам
+   *
+   * @param words различные слова словаря
+   */
+  public BkTree(Collection<String> words) {
+    Node root = null;
+    int size = 0;
+    for (String word : words) {
+      if (root == null) {
+        root = new Node(word);
+        size++;
+      } else if (insert(root, word)) {
+        size++;
+      }
+    }
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Возвращает количество слов в дереве
+   *
+   * @return количество слов
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Ищет слова на расстоянии Левенштейна не больше maxDistance от данного
+   *
+   * @param word        - ключевое слово
+   * @param maxDistance - максимальное расстояние
+   * @return найденные слова
+   */
+  public List<String> find(String word, int maxDistance) {
+    List<String> res = new ArrayList<>();
+    if (root == null) {
+      return res;
+    }
+    Pattern pattern = new Pattern(word);
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      int distance = pattern.distanceTo(node.word);
+      if (distance <= maxDistance) {
+        res.add(node.word);
+      }
+      // Подходящие слова могут быть только в поддеревьях [d - k; d + k]
+      for (var child : node.children.entrySet()) {
+        if (Math.abs(child.getKey() - distance) <= maxDistance) {
+          stack.push(child.getValue());
+        }
+      }
+    }
+    return res;
+  }
+
+  // Добавляет слово в дерево, возвращает false, если оно там уже было
+  private static boolean insert(Node root, String word) {
+    Pattern pattern = new Pattern(word);
+    Node node = root;
+    while (true) {
+      int distance = pattern.distanceTo(node.word);
+      if (distance == 0) {
+        return false;
+      }
+      Node child = node.children.get(distance);
+      if (child == null) {
+        node.children.put(distance, new Node(word));
+        return true;
+      }
+      node = child;
+    }
+  }
+
+  /**
+   * Узел дерева
+   */
+  private static final class Node {
+
+    // Слово
+    private final String word;
+    // Расстояние до слова потомка -> потомок
+    private final Map<Integer, Node> children = new HashMap<>();
+
+    Node(String word) {
+      this.word = word;
+    }
+  }
+}
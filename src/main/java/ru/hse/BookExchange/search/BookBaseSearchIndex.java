@@ -0,0 +1,242 @@
+package ru.hse.BookExchange.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.models.BookBaseRequest;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+
+/**
+ * Инвертированный индекс книг (bookBase) для поиска: слово -> id книг
+ *
+ * <p>
+ * Строится при запуске приложения и обновляется при добавлении, изменении и
+ * удалении книг. Чтение потокобезопасно и не требует блокировок.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "memory",
+    matchIfMissing = true)
+public class BookBaseSearchIndex {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(BookBaseSearchIndex.class);
+
+  // Репозиторий книг (bookBase)
+  private final BookBaseRepository bookBaseRepository;
+
+  // Индекс слов названий
+  private final FieldIndex titleIndex = new FieldIndex();
+  // Индекс слов авторов
+  private final FieldIndex authorIndex = new FieldIndex();
+  // Id книги -> проиндексированные поля
+  private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+  // Общий словарь слов названий и авторов
+  private final TokenDictionary dictionary;
+
+  public BookBaseSearchIndex(BookBaseRepository bookBaseRepository,
+      Analyzer analyzer) {
+    this.bookBaseRepository = bookBaseRepository;
+    this.dictionary = new TokenDictionary(analyzer);
+  }
+
+  /**
+   * Строит индекс по всем книгам из бд (после загрузки стартовых записей)
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void rebuild() {
+    titleIndex.clear();
+    authorIndex.clear();
+    entries.clear();
+    List<BookBase> bookBases = bookBaseRepository.findAllBookBases();
+    for (BookBase bookBase : bookBases) {
+      index(bookBase);
+    }
+    publish();
+    log.info("Search index built: " + entries.size() + " bookBases, "
+        + titleIndex.size() + " title words, " + authorIndex.size()
+        + " author words");
+  }
+
+  /**
+   * Добавляет книгу в индекс (или обновляет, если она уже проиндексирована)
+   *
+   * @param bookBase книга
+   */
+  public synchronized void add(BookBase bookBase) {
+    index(bookBase);
+    publish();
+  }
+
+  /**
+   * Удаляет книгу из индекса
+   *
+   * @param id id книги
+   */
+  public synchronized void remove(Long id) {
+    unindex(id);
+    publish();
+  }
+
+  /**
+   * Возвращает проиндексированные поля книги
+   *
+   * @param id id книги
+   * @return поля книги (null, если книги нет в индексе)
+   */
+  public Entry getEntry(Long id) {
+    return entries.get(id);
+  }
+
+  /**
+   * Создает поисковый запрос по строке поиска
+   *
+   * @param searchText строка поиска
+   * @return запрос с нормализованными ключевыми словами
+   */
+  public SearchQuery createQuery(String searchText) {
+    return new SearchQuery(SearchScorer.getSearchWords(searchText),
+        dictionary);
+  }
+
+  /**
+   * Подбирает книги-кандидаты, в которых есть слова, похожие на ключевые
+   *
+   * @param query - поисковый запрос
+   * @param field - поле поиска
+   * @return id книг-кандидатов
+   */
+  public Set<Long> findCandidates(SearchQuery query, SearchField field) {
+    Set<Long> candidates = new HashSet<>();
+    String[] searchWords = query.getSearchWords();
+    String[][] searchTerms = query.getSearchTerms();
+    for (int i = 0; i < searchWords.length; i++) {
+      if (searchWords[i].isEmpty()) {
+        continue;
+      }
+      if (field != SearchField.author) {
+        titleIndex.collectCandidates(searchWords[i], searchTerms[i],
+            candidates);
+      }
+      if (field != SearchField.title) {
+        authorIndex.collectCandidates(searchWords[i], searchTerms[i],
+            candidates);
+      }
+    }
+    return candidates;
+  }
+
+  // Добавляет книгу в индексы полей
+  private void index(BookBase bookBase) {
+    if (bookBase instanceof BookBaseRequest || bookBase.getId() == null) {
+      return;
+    }
+    unindex(bookBase.getId());
+
+    // Нормализованные поля сохранены в книге, повторно их не разбираем
+    Entry entry = new Entry(bookBase.getId(),
+        dictionary.getIds(toWords(bookBase.getSearchTitle())),
+        dictionary.getIds(toWords(bookBase.getSearchAuthor())));
+    entries.put(entry.id, entry);
+    titleIndex.add(getWords(entry.titleTokens), getTerms(entry.titleTokens),
+        entry.id);
+    authorIndex.add(getWords(entry.authorTokens),
+        getTerms(entry.authorTokens), entry.id);
+  }
+
+  // Удаляет книгу из индексов полей
+  private void unindex(Long id) {
+    Entry entry = entries.remove(id);
+    if (entry == null) {
+      return;
+    }
+    titleIndex.remove(getWords(entry.titleTokens),
+        getTerms(entry.titleTokens), id);
+    authorIndex.remove(getWords(entry.authorTokens),
+        getTerms(entry.authorTokens), id);
+  }
+
+  // Публикует новые снимки словарей, если они изменились
+  private void publish() {
+    titleIndex.publish();
+    authorIndex.publish();
+  }
+
+  // Разбивает нормализованное поле книги на различные слова
+  private static String[] toWords(String normalized) {
+    return Arrays.stream(TextNormalizer.split(normalized)).distinct()
+        .toArray(String[]::new);
+  }
+
+  // Возвращает слова по их номерам в словаре
+  private String[] getWords(int[] tokens) {
+    String[] words = new String[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      words[i] = dictionary.getWord(tokens[i]);
+    }
+    return words;
+  }
+
+  // Возвращает варианты слов по их номерам в словаре
+  private String[][] getTerms(int[] tokens) {
+    String[][] terms = new String[tokens.length][];
+    for (int i = 0; i < tokens.length; i++) {
+      terms[i] = dictionary.getTerms(tokens[i]);
+    }
+    return terms;
+  }
+
+  /**
+   * Проиндексированные поля книги
+   */
+  public static final class Entry {
+
+    // Id книги
+    private final Long id;
+    // Номера слов названия и автора книги в словаре
+    private final int[] titleTokens, authorTokens;
+
+    Entry(Long id, int[] titleTokens, int[] authorTokens) {
+      this.id = id;
+      this.titleTokens = titleTokens;
+      this.authorTokens = authorTokens;
+    }
+
+    /**
+     * Возвращает id книги
+     *
+     * @return id книги
+     */
+    public Long getId() {
+      return id;
+    }
+
+    /**
+     * Возвращает номера слов полей книги, по которым идет поиск
+     *
+     * @param field поле поиска
+     * @return номера слов полей
+     */
+    public List<int[]> getTokens(SearchField field) {
+      switch (field) {
+        case title:
+          return List.of(titleTokens);
+        case author:
+          return List.of(authorTokens);
+        default:
+          return List.of(authorTokens, titleTokens);
+      }
+    }
+  }
+}
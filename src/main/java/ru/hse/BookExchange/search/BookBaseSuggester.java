@@ -0,0 +1,110 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.models.BookBaseRequest;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+
+/**
+ * Подсказки при вводе строки поиска по префиксам заголовков и авторов книг
+ *
+ * <p>
+ * Префиксное дерево строится при запуске приложения и обновляется при
+ * добавлении, изменении и удалении книг, а также при изменении их рейтинга
+ * и количества добавивших в избранное. Подсказки не обращаются к бд.
+ * </p>
+ */
+@Component
+public class BookBaseSuggester {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(BookBaseSuggester.class);
+
+  // Репозиторий книг (bookBase)
+  private final BookBaseRepository bookBaseRepository;
+  // Сколько подсказок хранить для каждого префикса
+  private final int size;
+  // Префиксное дерево (заменяется целиком при перестроении)
+  private volatile PrefixTrie trie;
+
+  public BookBaseSuggester(BookBaseRepository bookBaseRepository,
+      @Value("${search.suggest.size:10}") int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException(
+          "search.suggest.size must be positive");
+    }
+    this.bookBaseRepository = bookBaseRepository;
+    this.size = size;
+    this.trie = new PrefixTrie(size);
+  }
+
+  /**
+   * Строит дерево по всем книгам из бд (после загрузки стартовых записей)
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public synchronized void rebuild() {
+    PrefixTrie newTrie = new PrefixTrie(size);
+    List<BookBase> bookBases = bookBaseRepository.findAllBookBases();
+    for (BookBase bookBase : bookBases) {
+      newTrie.put(new Suggestion(bookBase));
+    }
+    trie = newTrie;
+    log.info("Suggestion trie built: " + bookBases.size() + " bookBases");
+  }
+
+  /**
+   * Добавляет книгу в подсказки (или обновляет, если она уже есть)
+   *
+   * @param bookBase книга
+   */
+  public synchronized void add(BookBase bookBase) {
+    if (bookBase instanceof BookBaseRequest || bookBase.getId() == null) {
+      return;
+    }
+    trie.put(new Suggestion(bookBase));
+  }
+
+  /**
+   * Обновляет порядок книги в подсказках после изменения ее рейтинга или
+   * количества добавивших в избранное
+   *
+   * @param bookBase книга
+   */
+  public synchronized void updateRank(BookBase bookBase) {
+    // Новые книги добавляются только через add
+    if (trie.contains(bookBase.getId())) {
+      trie.put(new Suggestion(bookBase));
+    }
+  }
+
+  /**
+   * Удаляет книгу из подсказок
+   *
+   * @param id id книги
+   */
+  public synchronized void remove(Long id) {
+    trie.remove(id);
+  }
+
+  /**
+   * Возвращает лучшие книги, слово заголовка или автора которых начинается с
+   * префикса
+   *
+   * @param prefix - введенная часть строки поиска
+   * @param limit  - сколько вернуть (не больше search.suggest.size)
+   * @return подсказки в порядке убывания рейтинга
+   */
+  public List<Suggestion> suggest(String prefix, int limit) {
+    return trie.suggest(TextNormalizer.normalize(prefix),
+        Math.min(limit, size));
+  }
+}
@@ -0,0 +1,237 @@
+package ru.hse.BookExchange.search;
+
+/**
+ * Вычисление расстояний между словами без выделения памяти на каждое
+ * сравнение
+ */
+public final class EditDistance {
+
+  // Максимальная длина слова для битово-параллельного алгоритма
+  private static final int MAX_BIT_PARALLEL_LENGTH = Long.SIZE;
+
+  // Строки таблицы расстояний, переиспользуемые потоком
+  private static final ThreadLocal<int[][]> rows = ThreadLocal
+      .withInitial(() -> new int[3][32]);
+
+  private EditDistance() {
+  }
+
+  /**
+   * Определяет модифицированное расстояние Дамерау-Левенштейна адаптированным
+   * алгоритмом Вагнера-Фишера
+   *
+   * <p>
+   * Модифицированность означает следующее: Если обнаружено совпадения
+   * нескольких символов подряд - расстояние будет не сохранено тем же, а
+   * уменьшено. Например, расстояние будет меньше, если одна из строк вложена в
+   * другую, нежели если она будет являться только подстрокой.
+   * </p>
+   *
+   * <p>
+   * Хранятся только три последние строки таблицы (третья нужна для
+   * перестановок), сами строки переиспользуются потоком.
+   * </p>
+   *
+   * @param s - 1я строка
+   * @param t - 2я строка
+   * @return модифицированное расстояние
+   */
+  public static int getModifiedDamerauLevenshteinDistance(String s,
+      String t) {
+    // Размеры строк
+    int sLen = s.length(), tLen = t.length();
+    int[][] buffers = getRows(tLen + 1);
+    // Строки таблицы i - 2, i - 1 и i
+    int[] beforePrev = buffers[0], prev = buffers[1], cur = buffers[2];
+
+    // Заполняем случай, когда первая строка пустая
+    for (int j = 0; j <= tLen; ++j) {
+      prev[j] = j;
+    }
+    // Теперь из [1, 1] идем в [sLen, tLen]
+    for (int i = 1; i <= sLen; ++i) {
+      char sChar = s.charAt(i - 1);
+      char sPrevChar = i > 1 ? s.charAt(i - 2) : 0;
+      cur[0] = i;
+      for (int j = 1; j <= tLen; ++j) {
+        char tChar = t.charAt(j - 1);
+        // Если символы равны, дополнительных действий делать не надо
+        if (sChar == tChar) {
+          cur[j] = prev[j - 1];
+          /* Если и на прошлой шаге было совпадение,
+             уменьшаем расстояние (чтобы увеличить очки)  */
+          if (i > 1 && j > 1 && sPrevChar == t.charAt(j - 2)) {
+            cur[j]--;
+          }
+        } else {
+          /* Выберем путь, где мы сделали меньше всего действий,
+             и продолжим от него */
+          int best = Math.min(prev[j], Math.min(cur[j - 1], prev[j - 1]));
+          // Смена символов местами
+          if (i > 1 && j > 1 && sChar == t.charAt(j - 2)
+              && sPrevChar == tChar) {
+            best = Math.min(best, beforePrev[j - 2]);
+          }
+          cur[j] = 1 + best;
+        }
+      }
+      int[] tmp = beforePrev;
+      beforePrev = prev;
+      prev = cur;
+      cur = tmp;
+    }
+    return prev[tLen];
+  }
+
+  /**
+   * Определяет расстояние Левенштейна
+   *
+   * @param s - 1я строка
+   * @param t - 2я строка
+   * @return расстояние Левенштейна
+   */
+  public static int getLevenshteinDistance(String s, String t) {
+    return new Pattern(s).distanceTo(t);
+  }
+
+  // Возвращает строки таблицы потока длиной не меньше length
+  private static int[][] getRows(int length) {
+    int[][] buffers = rows.get();
+    if (buffers[0].length < length) {
+      int newLength = Math.max(length, buffers[0].length * 2);
+      buffers = new int[3][newLength];
+      rows.set(buffers);
+    }
+    return buffers;
+  }
+
+  /**
+   * Слово, подготовленное для многократного вычисления расстояния Левенштейна
+   * до других слов
+   *
+   * <p>
+   * Для слов до 64 символов используется битово-параллельный алгоритм Майерса
+   * (в формулировке Хюрё): столбец таблицы расстояний хранится как битовые
+   * маски изменений, и каждый символ второго слова обрабатывается за
+   * несколько операций над long. Для более длинных слов считается таблица по
+   * строкам.
+   * </p>
+   */
+  public static final class Pattern {
+
+    // Слово
+    private final String word;
+    // Символы слова (открытая адресация) и маски их позиций
+    private final char[] keys;
+    private final long[] masks;
+    private final boolean[] used;
+
+    public Pattern(String word) {
+      this.word = word;
+      if (word.isEmpty() || word.length() > MAX_BIT_PARALLEL_LENGTH) {
+        keys = null;
+        masks = null;
+        used = null;
+        return;
+      }
+      // Таблица в 2 раза больше максимального числа различных символов
+      int size = Integer.highestOneBit(word.length()) << 2;
+      keys = new char[size];
+      masks = new long[size];
+      used = new boolean[size];
+      for (int i = 0; i < word.length(); i++) {
+        int slot = findSlot(word.charAt(i));
+        used[slot] = true;
+        keys[slot] = word.charAt(i);
+        masks[slot] |= 1L << i;
+      }
+    }
+
+    /**
+     * Возвращает слово
+     *
+     * @return слово
+     */
+    public String getWord() {
+      return word;
+    }
+
+    /**
+     * Определяет расстояние Левенштейна до другого слова
+     *
+     * @param other другое слово
+     * @return расстояние Левенштейна
+     */
+    public int distanceTo(String other) {
+      if (word.isEmpty()) {
+        return other.length();
+      }
+      if (masks == null) {
+        return getRowsDistance(word, other);
+      }
+
+      int m = word.length();
+      long last = 1L << (m - 1);
+      // Вертикальные +1 и -1 текущего столбца
+      long vp = -1L, vn = 0L;
+      int score = m;
+      for (int j = 0; j < other.length(); j++) {
+        long eq = getMask(other.charAt(j));
+        long xv = eq | vn;
+        long xh = (((eq & vp) + vp) ^ vp) | eq;
+        // Горизонтальные +1 и -1
+        long hp = vn | ~(xh | vp);
+        long hn = vp & xh;
+        if ((hp & last) != 0) {
+          score++;
+        } else if ((hn & last) != 0) {
+          score--;
+        }
+        hp = (hp << 1) | 1L;
+        hn = hn << 1;
+        vp = hn | ~(xv | hp);
+        vn = hp & xv;
+      }
+      return score;
+    }
+
+    // Возвращает маску позиций символа в слове
+    private long getMask(char c) {
+      int slot = findSlot(c);
+      return used[slot] ? masks[slot] : 0L;
+    }
+
+    // Ищет ячейку символа в таблице (или свободную ячейку для него)
+    private int findSlot(char c) {
+      int mask = keys.length - 1;
+      int slot = (c * 0x9E3779B1) >>> 16 & mask;
+      while (used[slot] && keys[slot] != c) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    // Расстояние Левенштейна по строкам таблицы (для длинных слов)
+    private static int getRowsDistance(String s, String t) {
+      int sLen = s.length(), tLen = t.length();
+      int[][] buffers = getRows(tLen + 1);
+      int[] prev = buffers[0], cur = buffers[1];
+      for (int j = 0; j <= tLen; ++j) {
+        prev[j] = j;
+      }
+      for (int i = 1; i <= sLen; ++i) {
+        char sChar = s.charAt(i - 1);
+        cur[0] = i;
+        for (int j = 1; j <= tLen; ++j) {
+          int cost = sChar == t.charAt(j - 1) ? 0 : 1;
+          cur[j] = Math.min(prev[j - 1] + cost,
+              Math.min(prev[j], cur[j - 1]) + 1);
+        }
+        int[] tmp = prev;
+        prev = cur;
+        cur = tmp;
+      }
+      return prev[tLen];
+    }
+  }
+}
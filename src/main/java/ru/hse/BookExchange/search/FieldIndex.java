@@ -0,0 +1,189 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс слов одного поля книг (названия или автора)
+ *
+ * <p>
+ * Изменения должны выполняться из одного потока (или под внешней
+ * блокировкой), чтение возможно из любого количества потоков.
+ * </p>
+ */
+class FieldIndex {
+
+  /* Ключевые слова короче этого сравниваются со всем словарем: для них
+     похожими считаются и слова на большом расстоянии Левенштейна */
+  static final int FULL_SCAN_LENGTH = 5;
+
+  // Слово -> id книг
+  private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+  // Вариант слова (от анализатора) -> id книг
+  private final Map<String, Set<Long>> termPostings =
+      new ConcurrentHashMap<>();
+  // Триграммы слов словаря
+  private final TrigramIndex trigrams = new TrigramIndex();
+  // Снимок словаря для поиска опечаток (пересоздается при изменении словаря)
+  private volatile BkTree vocabulary = BkTree.EMPTY;
+  // Изменился ли словарь после создания снимка
+  private boolean vocabularyChanged;
+
+  /**
+   * Добавляет слова книги в индекс
+   *
+   * @param words - слова поля книги
+   * @param terms - варианты каждого слова
+   * @param id    - id книги
+   */
+  void add(String[] words, String[][] terms, Long id) {
+    for (String[] wordTerms : terms) {
+      for (String term : wordTerms) {
+        termPostings.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet())
+            .add(id);
+      }
+    }
+    for (String word : words) {
+      postings.computeIfAbsent(word, w -> {
+        // Новое слово словаря
+        trigrams.add(w);
+        vocabularyChanged = true;
+        return ConcurrentHashMap.newKeySet();
+      }).add(id);
+    }
+  }
+
+  /**
+   * Удаляет слова книги из индекса
+   *
+   * @param words - слова поля книги
+   * @param terms - варианты каждого слова
+   * @param id    - id книги
+   */
+  void remove(String[] words, String[][] terms, Long id) {
+    for (String[] wordTerms : terms) {
+      for (String term : wordTerms) {
+        termPostings.computeIfPresent(term, (t, ids) -> {
+          ids.remove(id);
+          return ids.isEmpty() ? null : ids;
+        });
+      }
+    }
+    for (String word : words) {
+      postings.computeIfPresent(word, (w, ids) -> {
+        ids.remove(id);
+        if (!ids.isEmpty()) {
+          return ids;
+        }
+        // Слова больше нет ни в одной книге
+        trigrams.remove(w);
+        vocabularyChanged = true;
+        return null;
+      });
+    }
+  }
+
+  /**
+   * Очищает индекс
+   */
+  void clear() {
+    postings.clear();
+    termPostings.clear();
+    trigrams.clear();
+    vocabularyChanged = true;
+  }
+
+  /**
+   * Пересоздает снимок словаря, если словарь изменился (копирование при
+   * записи: читатели продолжают работать со старым снимком)
+   */
+  void publish() {
+    if (vocabularyChanged) {
+      vocabulary = new BkTree(new ArrayList<>(postings.keySet()));
+      vocabularyChanged = false;
+    }
+  }
+
+  /**
+   * Возвращает количество слов в словаре
+   *
+   * @return количество слов
+   */
+  int size() {
+    return postings.size();
+  }
+
+  /**
+   * Добавляет к кандидатам книги со словами, похожими на ключевое
+   *
+   * <p>
+   * Подходят слова с общим вариантом ключевого слова. Остальные слова должны
+   * быть похожими (isSimilar), а для ключевых слов не короче FULL_SCAN_LENGTH
+   * еще и найтись в BK-дереве (не дальше getMaxTypos) или по общим
+   * триграммам. Поэтому похожие, но далекие слова (например, слово, в котором
+   * буквы ключевого идут вразброс) книгу в кандидаты не добавляют - такие
+   * книги в результат поиска не попадают.
+   * </p>
+   *
+   * @param searchWord  - ключевое слово
+   * @param searchTerms - варианты ключевого слова
+   * @param candidates  - id книг-кандидатов
+   */
+  void collectCandidates(String searchWord, String[] searchTerms,
+      Set<Long> candidates) {
+    // Книги с общим вариантом слова подходят без подсчета расстояния
+    for (String term : searchTerms) {
+      Set<Long> ids = termPostings.get(term);
+      if (ids != null) {
+        candidates.addAll(ids);
+      }
+    }
+    Collection<String> words;
+    if (searchWord.length() < FULL_SCAN_LENGTH) {
+      // Короткие слова похожи на слишком многие, перебираем весь словарь
+      words = postings.keySet();
+    } else {
+      /* Опечатки ищем в BK-дереве, части слов - по общим триграммам.
+         Расстояние для очков считаем только для найденных слов */
+      words = new HashSet<>(
+          vocabulary.find(searchWord, getMaxTypos(searchWord)));
+      words.addAll(trigrams.findCandidates(searchWord));
+    }
+    for (String word : words) {
+      Set<Long> ids = postings.get(word);
+      if (ids != null && isSimilar(word, searchWord)) {
+        candidates.addAll(ids);
+      }
+    }
+  }
+
+  /**
+   * Возвращает допустимое количество опечаток в ключевом слове
+   *
+   * @param searchWord ключевое слово
+   * @return допустимое расстояние Левенштейна
+   */
+  static int getMaxTypos(String searchWord) {
+    if (searchWord.length() <= 5) {
+      return 1;
+    }
+    return searchWord.length() <= 9 ? 2 : 3;
+  }
+
+  /**
+   * Проверяет, достаточно ли слово похоже на ключевое, чтобы его книги попали в
+   * кандидаты (набирает не меньше очков, чем длина ключевого слова)
+   *
+   * @param word       - слово из словаря
+   * @param searchWord - ключевое слово
+   * @return похоже ли слово на ключевое
+   */
+  static boolean isSimilar(String word, String searchWord) {
+    return SearchScorer.compareStrings(word, searchWord) >= searchWord
+        .length();
+  }
+}
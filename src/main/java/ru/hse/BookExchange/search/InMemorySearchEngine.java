@@ -0,0 +1,86 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.search.BookBaseSearchIndex.Entry;
+
+/**
+ * Поиск книг по индексу в памяти приложения
+ */
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "memory",
+    matchIfMissing = true)
+public class InMemorySearchEngine implements SearchEngine {
+
+  // Поисковый индекс книг
+  private final BookBaseSearchIndex searchIndex;
+  // Пул потоков для параллельной оценки кандидатов
+  private final ForkJoinPool searchPool;
+  // С какого количества кандидатов оценивать их параллельно
+  private final int parallelThreshold;
+
+  public InMemorySearchEngine(BookBaseSearchIndex searchIndex,
+      @Value("${search.parallel.threshold:2000}") int parallelThreshold,
+      @Value("${search.parallel.threads:0}") int parallelThreads) {
+    this.searchIndex = searchIndex;
+    this.parallelThreshold = parallelThreshold;
+    // Отдельный пул, чтобы поиск не занимал общий пул ForkJoinPool
+    this.searchPool = new ForkJoinPool(parallelThreads > 0 ? parallelThreads
+        : Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Останавливает пул потоков поиска
+   */
+  @PreDestroy
+  public void shutdown() {
+    searchPool.shutdown();
+  }
+
+  @Override
+  public List<Long> search(String searchText, SearchField field, int limit,
+      int skip) {
+    // Нормализованные ключевые слова
+    SearchQuery query = searchIndex.createQuery(searchText);
+
+    // Оцениваем только книги, в которых есть похожие слова
+    Entry[] candidates = searchIndex.findCandidates(query, field).stream()
+        .map(searchIndex::getEntry).filter(Objects::nonNull)
+        .sorted(Comparator.comparing(Entry::getId)).toArray(Entry[]::new);
+
+    /* Считаем очки каждой книги ровно один раз и выбираем наименьшие ключи
+       (-очки, номер кандидата): при равных очках выше книга с меньшим id */
+    int k = (int) Math.min((long) skip + limit, candidates.length);
+    // На одном потоке параллельная оценка только добавила бы накладные расходы
+    boolean parallel = candidates.length >= parallelThreshold
+        && searchPool.getParallelism() > 1;
+    long[] top = parallel
+        ? SearchRanker
+        .rankParallel(searchPool, candidates, field, query, k)
+        : SearchRanker.rank(candidates, field, query, k);
+
+    List<Long> ids = new ArrayList<>();
+    for (int i = skip; i < top.length; i++) {
+      ids.add(candidates[(int) top[i]].getId());
+    }
+    return ids;
+  }
+
+  @Override
+  public void onSaved(BookBase bookBase) {
+    searchIndex.add(bookBase);
+  }
+
+  @Override
+  public void onDeleted(Long id) {
+    searchIndex.remove(id);
+  }
+}
@@ -0,0 +1,123 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Поиск книг средствами PostgreSQL (расширение pg_trgm)
+ *
+ * <p>
+ * Нечеткое сравнение, сортировка и выбор страницы выполняются в бд по
+ * GIN-индексам триграмм нормализованных полей книг, поэтому приложению
+ * передаются только id книг одной страницы. Книга оценивается по
+ * word_similarity строки поиска с названием и/или автором.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "pg_trgm")
+public class PgTrgmSearchEngine implements SearchEngine {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(PgTrgmSearchEngine.class);
+
+  // Книги без заявок на добавление книг (они хранятся в той же таблице)
+  private static final String FROM = " FROM book_base b WHERE NOT EXISTS"
+      + " (SELECT 1 FROM book_base_request r WHERE r.id = b.id) AND ";
+  // Страница результатов по убыванию очков, при равных очках - по id
+  private static final String PAGE = " ORDER BY score DESC, b.id"
+      + " LIMIT :limit OFFSET :skip";
+
+  // Поиск по названию
+  private static final String BY_TITLE =
+      "SELECT b.id, word_similarity(:query, b.search_title) AS score" + FROM
+          + ":query <% b.search_title" + PAGE;
+  // Поиск по автору
+  private static final String BY_AUTHOR =
+      "SELECT b.id, word_similarity(:query, b.search_author) AS score" + FROM
+          + ":query <% b.search_author" + PAGE;
+  // Поиск по автору и названию
+  private static final String BY_TEXT = "SELECT b.id,"
+      + " word_similarity(:query, b.search_author)"
+      + " + word_similarity(:query, b.search_title) AS score" + FROM
+      + "(:query <% b.search_title OR :query <% b.search_author)" + PAGE;
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  // Транзакция, в пределах которой действует порог схожести
+  private final TransactionTemplate transactionTemplate;
+  // Порог word_similarity, с которого книга попадает в результаты
+  private final String threshold;
+
+  public PgTrgmSearchEngine(NamedParameterJdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${search.trgm.threshold:0.3}") double threshold) {
+    if (threshold < 0 || threshold > 1) {
+      throw new IllegalArgumentException(
+          "search.trgm.threshold must be between 0 and 1");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.threshold = String.valueOf(threshold);
+  }
+
+  /**
+   * Создает расширение pg_trgm и индексы триграмм (после создания схемы)
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void createIndexes() {
+    try {
+      var jdbc = jdbcTemplate.getJdbcTemplate();
+      jdbc.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS book_base_search_title_trgm"
+          + " ON book_base USING gin (search_title gin_trgm_ops)");
+      jdbc.execute("CREATE INDEX IF NOT EXISTS book_base_search_author_trgm"
+          + " ON book_base USING gin (search_author gin_trgm_ops)");
+    } catch (DataAccessException ex) {
+      // Без индексов поиск работает, но перебирает всю таблицу
+      log.warn("Could not create pg_trgm indexes: " + ex.getMessage());
+    }
+  }
+
+  @Override
+  public List<Long> search(String searchText, SearchField field, int limit,
+      int skip) {
+    String query = TextNormalizer.normalize(searchText);
+    if (query.isEmpty() || limit == 0) {
+      return List.of();
+    }
+    String sql;
+    switch (field) {
+      case title:
+        sql = BY_TITLE;
+        break;
+      case author:
+        sql = BY_AUTHOR;
+        break;
+      default:
+        sql = BY_TEXT;
+    }
+    var params = new MapSqlParameterSource()
+        .addValue("query", query)
+        .addValue("limit", limit)
+        .addValue("skip", skip);
+    return transactionTemplate.execute(status -> {
+      // Порог оператора <% только для этой транзакции
+      jdbcTemplate.getJdbcTemplate().queryForObject(
+          "SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+          String.class, threshold);
+      return jdbcTemplate.query(sql, params, (rs, i) -> rs.getLong(1));
+    });
+  }
+}
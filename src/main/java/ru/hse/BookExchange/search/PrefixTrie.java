@@ -0,0 +1,228 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Префиксное дерево подсказок: префикс слов книги -> лучшие книги
+ *
+ * <p>
+ * Ключи книги - нормализованные заголовок и автор, начиная с каждого слова
+ * (поэтому "poter" найдет и "harry potter"). В каждом узле заранее выбраны
+ * лучшие книги поддерева: они собираются из лучших книг потомков и книг,
+ * ключ которых заканчивается в узле. При изменении книги пересчитываются
+ * только узлы на путях ее ключей (снизу вверх).
+ * </p>
+ *
+ * <p>
+ * Ключи обрезаны до MAX_KEY_LENGTH символов. Для более длинного префикса
+ * лучших книг узла недостаточно (подходящие книги могут в них не попасть),
+ * поэтому проверяются все книги поддерева узла обрезанного префикса.
+ * </p>
+ *
+ * <p>
+ * Изменения должны выполняться из одного потока (или под внешней
+ * блокировкой), чтение возможно из любого количества потоков.
+ * </p>
+ */
+class PrefixTrie {
+
+  // Максимальная длина ключа (более длинные префиксы проверяются по всем
+  // книгам поддерева)
+  static final int MAX_KEY_LENGTH = 32;
+
+  // Сколько лучших книг хранить в узле
+  private final int topSize;
+  // Корень дерева
+  private final Node root = new Node(null, '\0');
+  // Id книги -> подсказка
+  private final Map<Long, Suggestion> suggestions = new HashMap<>();
+
+  PrefixTrie(int topSize) {
+    this.topSize = topSize;
+  }
+
+  /**
+   * Добавляет книгу в дерево или обновляет ее
+   *
+   * @param suggestion подсказка по книге
+   */
+  void put(Suggestion suggestion) {
+    Suggestion old = suggestions.put(suggestion.getId(), suggestion);
+    Set<String> oldKeys = old == null ? Set.of() : getKeys(old);
+    Set<String> newKeys = getKeys(suggestion);
+
+    List<Node> changed = new ArrayList<>();
+    for (String key : oldKeys) {
+      if (!newKeys.contains(key)) {
+        Node node = find(key);
+        node.ids.remove(suggestion.getId());
+        changed.add(node);
+      }
+    }
+    for (String key : newKeys) {
+      Node node = getOrCreate(key);
+      node.ids.add(suggestion.getId());
+      changed.add(node);
+    }
+    changed.forEach(this::refreshPath);
+  }
+
+  /**
+   * Удаляет книгу из дерева
+   *
+   * @param id id книги
+   */
+  void remove(long id) {
+    Suggestion old = suggestions.remove(id);
+    if (old == null) {
+      return;
+    }
+    List<Node> changed = new ArrayList<>();
+    for (String key : getKeys(old)) {
+      Node node = find(key);
+      node.ids.remove(id);
+      changed.add(node);
+    }
+    changed.forEach(this::refreshPath);
+  }
+
+  /**
+   * Проверяет, есть ли книга в дереве
+   *
+   * @param id id книги
+   * @return есть ли книга
+   */
+  boolean contains(long id) {
+    return suggestions.containsKey(id);
+  }
+
+  /**
+   * Возвращает лучшие книги, слова которых начинаются с префикса
+   *
+   * @param prefix - нормализованный префикс
+   * @param limit  - сколько вернуть
+   * @return подсказки в порядке убывания рейтинга
+   */
+  List<Suggestion> suggest(String prefix, int limit) {
+    Node node = root;
+    int length = Math.min(prefix.length(), MAX_KEY_LENGTH);
+    for (int i = 0; i < length && node != null; i++) {
+      node = node.children.get(prefix.charAt(i));
+    }
+    if (node == null) {
+      return new ArrayList<>();
+    }
+    if (length == prefix.length()) {
+      List<Suggestion> res = new ArrayList<>();
+      for (int i = 0; i < node.top.length && i < limit; i++) {
+        res.add(node.top[i]);
+      }
+      return res;
+    }
+
+    // Ключи обрезаны: проверяем по самим книгам все книги поддерева
+    Map<Long, Suggestion> matched = new HashMap<>();
+    List<Node> stack = new ArrayList<>(List.of(node));
+    while (!stack.isEmpty()) {
+      Node cur = stack.remove(stack.size() - 1);
+      for (Suggestion suggestion : cur.own) {
+        if (suggestion.matches(prefix)) {
+          matched.put(suggestion.getId(), suggestion);
+        }
+      }
+      stack.addAll(cur.children.values());
+    }
+    return TopK.select(matched.values(), Suggestion.ORDER, 0, limit);
+  }
+
+  // Возвращает ключи книги: заголовок и автор с начала каждого слова
+  private static Set<String> getKeys(Suggestion suggestion) {
+    Set<String> keys = new HashSet<>();
+    for (String field : suggestion.getSearchFields()) {
+      for (int i = 0; i < field.length(); i++) {
+        if (i == 0 || field.charAt(i - 1) == ' ') {
+          keys.add(field.substring(i,
+              Math.min(field.length(), i + MAX_KEY_LENGTH)));
+        }
+      }
+    }
+    return keys;
+  }
+
+  // Находит узел ключа (он должен существовать)
+  private Node find(String key) {
+    Node node = root;
+    for (int i = 0; i < key.length(); i++) {
+      node = node.children.get(key.charAt(i));
+    }
+    return node;
+  }
+
+  // Находит узел ключа, создавая недостающие узлы
+  private Node getOrCreate(String key) {
+    Node node = root;
+    for (int i = 0; i < key.length(); i++) {
+      Node parent = node;
+      char c = key.charAt(i);
+      node = parent.children.computeIfAbsent(c, ch -> new Node(parent, ch));
+    }
+    return node;
+  }
+
+  // Пересчитывает книги узла и лучшие книги узла и его предков, удаляя
+  // пустые узлы
+  private void refreshPath(Node node) {
+    node.own = node.ids.stream().map(suggestions::get)
+        .toArray(Suggestion[]::new);
+    for (; node != null; node = node.parent) {
+      // Книга может быть в нескольких потомках, поэтому убираем повторы
+      Map<Long, Suggestion> candidates = new LinkedHashMap<>();
+      for (Long id : node.ids) {
+        candidates.put(id, suggestions.get(id));
+      }
+      for (Node child : node.children.values()) {
+        for (Suggestion suggestion : child.top) {
+          candidates.put(suggestion.getId(), suggestion);
+        }
+      }
+      node.top = TopK.select(candidates.values(), Suggestion.ORDER, 0,
+          topSize).toArray(new Suggestion[0]);
+
+      if (node.parent != null && node.ids.isEmpty() && node.children
+          .isEmpty()) {
+        node.parent.children.remove(node.key);
+      }
+    }
+  }
+
+  /**
+   * Узел дерева
+   */
+  private static final class Node {
+
+    // Родитель (null у корня)
+    private final Node parent;
+    // Символ ребра от родителя
+    private final char key;
+    // Символ -> потомок
+    private final Map<Character, Node> children = new ConcurrentHashMap<>();
+    // Id книг, ключ которых заканчивается в узле
+    private final Set<Long> ids = new HashSet<>();
+    // Книги, ключ которых заканчивается в узле (для чтения)
+    private volatile Suggestion[] own = new Suggestion[0];
+    // Лучшие книги поддерева
+    private volatile Suggestion[] top = new Suggestion[0];
+
+    Node(Node parent, char key) {
+      this.parent = parent;
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+import ru.hse.BookExchange.models.BookBase;
+
+/**
+ * Движок нечеткого поиска книг (bookBase)
+ *
+ * <p>
+ * Реализация выбирается свойством search.engine: memory (индекс в памяти
+ * приложения, по умолчанию) или pg_trgm (поиск средствами PostgreSQL).
+ * </p>
+ */
+public interface SearchEngine {
+
+  /**
+   * Ищет книги, наиболее подходящие под строку поиска
+   *
+   * @param searchText - строка поиска
+   * @param field      - поле поиска
+   * @param limit      - сколько вернуть
+   * @param skip       - сколько пропустить
+   * @return id книг по убыванию релевантности
+   */
+  List<Long> search(String searchText, SearchField field, int limit,
+      int skip);
+
+  /**
+   * Сообщает движку, что книга добавлена или изменена
+   *
+   * @param bookBase сохраненная книга
+   */
+  default void onSaved(BookBase bookBase) {
+  }
+
+  /**
+   * Сообщает движку, что книга удалена
+   *
+   * @param id id книги
+   */
+  default void onDeleted(Long id) {
+  }
+}
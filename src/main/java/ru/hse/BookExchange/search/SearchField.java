@@ -0,0 +1,8 @@
+package ru.hse.BookExchange.search;
+
+/**
+ * Поле книги, по которому ведется поиск
+ */
+public enum SearchField {
+  title, author, text
+}
@@ -0,0 +1,190 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+
+/**
+ * Поисковый запрос: ключевые слова и очки слов словаря для них
+ *
+ * <p>
+ * Слово, у которого есть общий вариант с ключевым (та же основа), набирает
+ * столько же очков, сколько точное совпадение, а слово с общим
+ * приближенным вариантом (та же запись другим алфавитом) - на одно очко
+ * меньше. Иначе очки считаются по расстоянию между словами.
+ * Очки пары (слово словаря, ключевое слово) запоминает Scorer: в небольшой
+ * таблице только тех слов, которые встретились у оцененных книг, а не в
+ * массиве размером со словарь. Scorer используется одним потоком, при
+ * параллельной оценке у каждой подзадачи свой.
+ * </p>
+ */
+public final class SearchQuery {
+
+  // Ключевые слова
+  private final String[] searchWords;
+  // Варианты ключевых слов
+  private final String[][] searchTerms;
+  // Словарь слов книг
+  private final TokenDictionary dictionary;
+
+  /**
+   * Создает запрос
+   *
+   * @param searchWords - ключевые слова
+   * @param dictionary  - словарь слов книг
+   */
+  public SearchQuery(String[] searchWords, TokenDictionary dictionary) {
+    this.searchWords = searchWords;
+    this.dictionary = dictionary;
+    this.searchTerms = new String[searchWords.length][];
+    for (int i = 0; i < searchWords.length; i++) {
+      searchTerms[i] = dictionary.getAnalyzer().analyze(searchWords[i]);
+    }
+  }
+
+  /**
+   * Возвращает ключевые слова
+   *
+   * @return ключевые слова
+   */
+  public String[] getSearchWords() {
+    return searchWords;
+  }
+
+  /**
+   * Возвращает варианты ключевых слов
+   *
+   * @return варианты каждого ключевого слова
+   */
+  public String[][] getSearchTerms() {
+    return searchTerms;
+  }
+
+  /**
+   * Создает оценку книг по запросу (для одного потока)
+   *
+   * @return оценка книг
+   */
+  public Scorer newScorer() {
+    return new Scorer();
+  }
+
+  // Считает очки слова словаря для ключевого слова
+  private int computeScore(int word, int token) {
+    String searchWord = searchWords[word];
+    int score = SearchScorer
+        .compareStrings(dictionary.getWord(token), searchWord);
+    boolean approximate = false;
+    for (String term : dictionary.getTerms(token)) {
+      for (String searchTerm : searchTerms[word]) {
+        if (term.equals(searchTerm)) {
+          if (!term.startsWith(TokenFilter.APPROXIMATE_PREFIX)) {
+            // Та же основа - как точное совпадение
+            return Math.max(searchWord.length(), score);
+          }
+          approximate = true;
+        }
+      }
+    }
+    // Та же запись - ниже точного совпадения
+    return approximate ? Math.max(searchWord.length() - 1, score) : score;
+  }
+
+  /**
+   * Оценка книг по запросу с запоминанием очков слов словаря
+   *
+   * <p>
+   * Для каждого ключевого слова очки хранятся в таблице с открытой
+   * адресацией (номер слова -> очки). Таблица создается при первом
+   * обращении и растет вместе с числом встреченных слов.
+   * </p>
+   */
+  public final class Scorer {
+
+    // Начальный размер таблицы (степень двойки)
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Ключевое слово -> номера слов словаря + 1 (0 - пустая ячейка)
+    private final int[][] keys = new int[searchWords.length][];
+    // Ключевое слово -> очки слов словаря
+    private final int[][] values = new int[searchWords.length][];
+    // Ключевое слово -> количество запомненных слов
+    private final int[] sizes = new int[searchWords.length];
+
+    private Scorer() {
+    }
+
+    /**
+     * Определяет релевантность книги (BookBase) при поиске
+     *
+     * @param fields номера слов полей книги, с которыми проверяем совпадения
+     * @return количество набранных очков
+     */
+    public int getScore(List<int[]> fields) {
+      int score = 0;
+      for (int i = 0; i < searchWords.length; i++) {
+        /* Ищем совпадения с каждым полем из fields */
+        for (int[] fieldTokens : fields) {
+          int best = 0;
+          /* Ищем наилучшее совпадения среди слов поля */
+          for (int token : fieldTokens) {
+            best = Math.max(best, getScore(i, token));
+          }
+          // Добавляем к очкам наилучшее совпадение
+          score += best;
+        }
+      }
+      return score;
+    }
+
+    // Возвращает очки слова словаря для ключевого слова
+    private int getScore(int word, int token) {
+      int[] wordKeys = keys[word];
+      if (wordKeys == null) {
+        wordKeys = keys[word] = new int[INITIAL_CAPACITY];
+        values[word] = new int[INITIAL_CAPACITY];
+      }
+      int key = token + 1;
+      int mask = wordKeys.length - 1;
+      int slot = getSlot(token, mask);
+      while (wordKeys[slot] != 0) {
+        if (wordKeys[slot] == key) {
+          return values[word][slot];
+        }
+        slot = (slot + 1) & mask;
+      }
+      int score = computeScore(word, token);
+      wordKeys[slot] = key;
+      values[word][slot] = score;
+      // Таблица заполнена не больше чем наполовину
+      if (++sizes[word] * 2 > wordKeys.length) {
+        grow(word);
+      }
+      return score;
+    }
+
+    // Начальная ячейка номера слова в таблице
+    private int getSlot(int token, int mask) {
+      int hash = token * 0x9E3779B1;
+      return (hash ^ hash >>> 16) & mask;
+    }
+
+    // Увеличивает таблицу ключевого слова в 2 раза
+    private void grow(int word) {
+      int[] oldKeys = keys[word], oldValues = values[word];
+      int[] newKeys = new int[oldKeys.length * 2];
+      int[] newValues = new int[newKeys.length];
+      int mask = newKeys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int slot = getSlot(oldKeys[i] - 1, mask);
+          while (newKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          newKeys[slot] = oldKeys[i];
+          newValues[slot] = oldValues[i];
+        }
+      }
+      keys[word] = newKeys;
+      values[word] = newValues;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package ru.hse.BookExchange.search;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import ru.hse.BookExchange.search.BookBaseSearchIndex.Entry;
+
+/**
+ * Оценка книг-кандидатов и выбор лучших из них
+ *
+ * <p>
+ * Результат - ключи (-очки, номер кандидата) по возрастанию: при равных
+ * очках выше кандидат с меньшим номером.
+ * </p>
+ */
+public final class SearchRanker {
+
+  /* Сколько кандидатов оценивает одна подзадача при параллельной оценке
+     (не подбиралось, замер - SearchRankerTest.benchmark) */
+  private static final int CHUNK_SIZE = 1024;
+
+  private SearchRanker() {
+  }
+
+  /**
+   * Оценивает кандидатов в текущем потоке
+   *
+   * @param candidates  - книги-кандидаты
+   * @param field       - поле поиска
+   * @param query       - поисковый запрос
+   * @param k           - сколько лучших ключей вернуть
+   * @return k лучших ключей по возрастанию
+   */
+  public static long[] rank(Entry[] candidates, SearchField field,
+      SearchQuery query, int k) {
+    return rankRange(candidates, field, query, 0, candidates.length, k);
+  }
+
+  /**
+   * Оценивает кандидатов параллельно: каждая подзадача выбирает k лучших
+   * ключей своей части, затем результаты сливаются
+   *
+   * @param pool        - пул потоков для оценки
+   * @param candidates  - книги-кандидаты
+   * @param field       - поле поиска
+   * @param query       - поисковый запрос
+   * @param k           - сколько лучших ключей вернуть
+   * @return k лучших ключей по возрастанию
+   */
+  public static long[] rankParallel(ForkJoinPool pool, Entry[] candidates,
+      SearchField field, SearchQuery query, int k) {
+    return pool.invoke(
+        new RankTask(candidates, field, query, 0, candidates.length, k));
+  }
+
+  // Оценивает кандидатов с from по to
+  private static long[] rankRange(Entry[] candidates, SearchField field,
+      SearchQuery query, int from, int to, int k) {
+    // Очки слов запоминаются на время оценки этой части кандидатов
+    SearchQuery.Scorer scorer = query.newScorer();
+    long[] keys = new long[to - from];
+    for (int i = from; i < to; i++) {
+      int score = scorer.getScore(candidates[i].getTokens(field));
+      keys[i - from] = ((long) -score << 32) | i;
+    }
+    return TopK.selectSmallest(keys, k);
+  }
+
+  /**
+   * Подзадача параллельной оценки кандидатов
+   */
+  private static final class RankTask extends RecursiveTask<long[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Entry[] candidates;
+    private final SearchField field;
+    private final SearchQuery query;
+    // Границы части кандидатов
+    private final int from, to;
+    // Сколько лучших ключей вернуть
+    private final int k;
+
+    RankTask(Entry[] candidates, SearchField field, SearchQuery query,
+        int from, int to, int k) {
+      this.candidates = candidates;
+      this.field = field;
+      this.query = query;
+      this.from = from;
+      this.to = to;
+      this.k = k;
+    }
+
+    @Override
+    protected long[] compute() {
+      if (to - from <= CHUNK_SIZE) {
+        return rankRange(candidates, field, query, from, to, k);
+      }
+      int middle = (from + to) >>> 1;
+      RankTask left = new RankTask(candidates, field, query, from,
+          middle, k);
+      left.fork();
+      long[] right = new RankTask(candidates, field, query, middle, to,
+          k).compute();
+      return TopK.mergeSmallest(left.join(), right, k);
+    }
+  }
+}
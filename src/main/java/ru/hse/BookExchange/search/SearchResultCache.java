@@ -0,0 +1,157 @@
+package ru.hse.BookExchange.search;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш результатов поиска: (запрос, поле, skip, limit) -> id книг
+ *
+ * <p>
+ * Хранит только id книг, поэтому сами книги (и скрытие приватных книг)
+ * каждый раз загружаются заново. Вытесняются давно не использованные
+ * запросы. Каждый результат помечается версией каталога, которая
+ * увеличивается при любом изменении книг: результаты старых версий
+ * считаются устаревшими.
+ * </p>
+ */
+public class SearchResultCache {
+
+  // Максимальное количество запросов в кэше
+  private final int capacity;
+  // Версия каталога книг
+  private final AtomicLong version = new AtomicLong();
+  // Запрос -> результат (в порядке последнего обращения)
+  private final Map<Key, Result> results;
+
+  /**
+   * Создает кэш
+   *
+   * @param capacity максимальное количество запросов (0 - кэш отключен)
+   */
+  public SearchResultCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException(
+          "search cache size cannot be negative!");
+    }
+    this.capacity = capacity;
+    this.results = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+        return size() > SearchResultCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Возвращает текущую версию каталога (ее нужно получить до поиска)
+   *
+   * @return версия каталога
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Делает устаревшими все результаты (после изменения каталога)
+   */
+  public void invalidate() {
+    version.incrementAndGet();
+  }
+
+  /**
+   * Возвращает результат запроса, если он есть и не устарел
+   *
+   * @param key запрос
+   * @return id книг (null, если результата нет)
+   */
+  public List<Long> get(Key key) {
+    if (capacity == 0) {
+      return null;
+    }
+    synchronized (results) {
+      Result result = results.get(key);
+      if (result == null) {
+        return null;
+      }
+      if (result.version != version.get()) {
+        results.remove(key);
+        return null;
+      }
+      return result.ids;
+    }
+  }
+
+  /**
+   * Сохраняет результат запроса
+   *
+   * @param key     - запрос
+   * @param version - версия каталога, с которой выполнялся поиск
+   * @param ids     - id найденных книг
+   */
+  public void put(Key key, long version, List<Long> ids) {
+    // Каталог мог измениться во время поиска
+    if (capacity == 0 || version != this.version.get()) {
+      return;
+    }
+    synchronized (results) {
+      results.put(key, new Result(version, List.copyOf(ids)));
+    }
+  }
+
+  /**
+   * Поисковый запрос
+   */
+  public static final class Key {
+
+    // Нормализованная строка поиска
+    private final String query;
+    // Поле поиска
+    private final SearchField field;
+    // Сколько пропустить
+    private final int skip;
+    // Сколько вернуть
+    private final int limit;
+
+    public Key(String query, SearchField field, int skip, int limit) {
+      this.query = query;
+      this.field = field;
+      this.skip = skip;
+      this.limit = limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return skip == key.skip && limit == key.limit
+          && field == key.field && query.equals(key.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(query, field, skip, limit);
+    }
+  }
+
+  /**
+   * Результат запроса и версия каталога, с которой он получен
+   */
+  private static final class Result {
+
+    private final long version;
+    private final List<Long> ids;
+
+    Result(long version, List<Long> ids) {
+      this.version = version;
+      this.ids = ids;
+    }
+  }
+}
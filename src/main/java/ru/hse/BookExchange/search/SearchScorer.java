@@ -0,0 +1,34 @@
+package ru.hse.BookExchange.search;
+
+/**
+ * Оценка релевантности книг (bookBase) при поиске
+ */
+public final class SearchScorer {
+
+  private SearchScorer() {
+  }
+
+  /**
+   * Разбивает строку поиска на нормализованные ключевые слова
+   *
+   * @param searchText - строка поиска
+   * @return ключевые слова
+   */
+  public static String[] getSearchWords(String searchText) {
+    return TextNormalizer.tokenize(searchText);
+  }
+
+  /**
+   * Сравнивает строки на схожесть
+   *
+   * @param where - слово книги (нормализованное)
+   * @param what  - ключевое слово (нормализованное)
+   * @return количество набранных очков
+   */
+  public static int compareStrings(String where, String what) {
+    int maxSize = Math.max(what.length(), where.length());
+    // Счет = максимальное расстояние Левенштейна - фактическое
+    return (maxSize - EditDistance
+        .getModifiedDamerauLevenshteinDistance(where, what));
+  }
+}
@@ -0,0 +1,78 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+
+/**
+ * Легкий стеммер русских и английских слов: отбрасывает окончания
+ *
+ * <p>
+ * Возвращает слово и его основу, поэтому формы слова ("поттера", "поттер")
+ * совпадают по основе, а несклоняемые слова - по самому слову. Основа
+ * должна быть не короче трех букв.
+ * </p>
+ */
+public class StemFilter implements TokenFilter {
+
+  // Минимальная длина основы
+  private static final int MIN_STEM_LENGTH = 3;
+
+  // Окончания русских слов (сначала длинные)
+  private static final String[] RUSSIAN_ENDINGS = {
+      "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "иях",
+      "ией", "ием", "ая", "яя", "ое", "ее", "ые", "ие", "ый", "ий", "ой", "ей",
+      "ом", "ем", "ам", "ям", "ах", "ях", "ов", "ев", "ию", "ия", "ья", "ье",
+      "ьи", "ью", "ую", "юю", "ых", "их", "а", "я", "о", "е", "у", "ю", "ы",
+      "и", "ь", "й"
+  };
+
+  @Override
+  public List<String> filter(String token) {
+    String stem = isCyrillic(token) ? stemRussian(token) : stemEnglish(token);
+    return stem.equals(token) ? List.of(token) : List.of(token, stem);
+  }
+
+  // Отбрасывает окончание русского слова
+  private static String stemRussian(String word) {
+    for (String ending : RUSSIAN_ENDINGS) {
+      if (word.endsWith(ending)
+          && word.length() - ending.length() >= MIN_STEM_LENGTH) {
+        return word.substring(0, word.length() - ending.length());
+      }
+    }
+    return word;
+  }
+
+  // Отбрасывает окончание английского слова (множественное число и т.п.)
+  private static String stemEnglish(String word) {
+    int n = word.length();
+    if (word.endsWith("ies") && n > 4) {
+      return word.substring(0, n - 3) + "y";
+    }
+    if (word.endsWith("sses")) {
+      return word.substring(0, n - 2);
+    }
+    if (word.endsWith("ing") && n - 3 > MIN_STEM_LENGTH) {
+      return word.substring(0, n - 3);
+    }
+    if (word.endsWith("ed") && n - 2 > MIN_STEM_LENGTH) {
+      return word.substring(0, n - 2);
+    }
+    // "-us", "-is", "-ss" - не множественное число
+    if (word.endsWith("s") && n > MIN_STEM_LENGTH
+        && "siu".indexOf(word.charAt(n - 2)) < 0) {
+      return word.substring(0, n - 1);
+    }
+    return word;
+  }
+
+  // Есть ли в слове кириллица
+  private static boolean isCyrillic(String word) {
+    for (int i = 0; i < word.length(); i++) {
+      if (Character.UnicodeBlock.of(word.charAt(i))
+          == Character.UnicodeBlock.CYRILLIC) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,95 @@
+package ru.hse.BookExchange.search;
+
+import java.util.Comparator;
+import java.util.Objects;
+import ru.hse.BookExchange.models.BookBase;
+
+/**
+ * Подсказка при вводе строки поиска: книга (bookBase) без обращения к бд
+ */
+public final class Suggestion {
+
+  // Порядок подсказок: по рейтингу, затем по количеству добавивших в
+  // избранное, при равенстве - по id
+  static final Comparator<Suggestion> ORDER = Comparator
+      .comparingDouble((Suggestion s) -> -s.rating)
+      .thenComparingInt(s -> -s.wishersCount)
+      .thenComparingLong(s -> s.id);
+
+  // Id книги
+  private final long id;
+  // Заголовок книги
+  private final String title;
+  // Автор книги
+  private final String author;
+  // Нормализованные заголовок и автор книги
+  private final String searchTitle, searchAuthor;
+  // Рейтинг книги
+  private final float rating;
+  // Количество пользователей, добавивших книгу в избранное
+  private final int wishersCount;
+
+  /**
+   * Создает подсказку по книге
+   *
+   * @param bookBase книга
+   */
+  Suggestion(BookBase bookBase) {
+    this.id = bookBase.getId();
+    this.title = bookBase.getTitle();
+    this.author = bookBase.getAuthor();
+    this.searchTitle = Objects
+        .requireNonNullElse(bookBase.getSearchTitle(), "");
+    this.searchAuthor = Objects
+        .requireNonNullElse(bookBase.getSearchAuthor(), "");
+    this.rating = bookBase.getRating();
+    this.wishersCount = bookBase.getWishersIds().size();
+  }
+
+  /**
+   * Проверяет, начинается ли какое-либо слово книги с префикса
+   *
+   * @param prefix нормализованный префикс
+   * @return подходит ли книга под префикс
+   */
+  boolean matches(String prefix) {
+    return (" " + searchTitle).contains(" " + prefix)
+        || (" " + searchAuthor).contains(" " + prefix);
+  }
+
+  /**
+   * Возвращает нормализованные заголовок и автора книги
+   *
+   * @return заголовок и автор
+   */
+  String[] getSearchFields() {
+    return new String[]{searchTitle, searchAuthor};
+  }
+
+  /**
+   * Возвращает id книги
+   *
+   * @return id книги
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Возвращает заголовок книги
+   *
+   * @return заголовок книги
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  /**
+   * Возвращает автора книги
+   *
+   * @return автор книги
+   */
+  public String getAuthor() {
+    return author;
+  }
+}
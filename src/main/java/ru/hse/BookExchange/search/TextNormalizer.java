@@ -0,0 +1,86 @@
+package ru.hse.BookExchange.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Нормализация текста для поиска
+ *
+ * <p>
+ * Текст приводится к форме NFKC и нижнему регистру, буква "ё" заменяется на
+ * "е", а все символы, кроме букв и цифр, - на пробелы. Одинаково
+ * нормализуются и поля книг, и строка поиска.
+ * </p>
+ */
+public final class TextNormalizer {
+
+  // Пустой список слов
+  private static final String[] NO_TOKENS = new String[0];
+
+  private TextNormalizer() {
+  }
+
+  /**
+   * Нормализует текст
+   *
+   * @param text текст
+   * @return слова текста через один пробел (null, если текст null)
+   */
+  public static String normalize(String text) {
+    if (text == null) {
+      return null;
+    }
+    String str = Normalizer.normalize(text, Normalizer.Form.NFKC)
+        .toLowerCase(Locale.ROOT);
+    StringBuilder sb = new StringBuilder(str.length());
+    boolean space = false;
+    for (int i = 0; i < str.length(); ) {
+      int cp = str.codePointAt(i);
+      i += Character.charCount(cp);
+      if (!isWordChar(cp)) {
+        // Знаки препинания и пробелы разделяют слова
+        space = sb.length() > 0;
+        continue;
+      }
+      if (space) {
+        sb.append(' ');
+        space = false;
+      }
+      sb.appendCodePoint(cp == 'ё' ? 'е' : cp);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Разбивает нормализованный текст на слова
+   *
+   * @param normalized текст после normalize
+   * @return слова текста
+   */
+  public static String[] split(String normalized) {
+    if (normalized == null || normalized.isEmpty()) {
+      return NO_TOKENS;
+    }
+    return normalized.split(" ");
+  }
+
+  /**
+   * Нормализует текст и разбивает его на слова
+   *
+   * @param text текст
+   * @return слова текста
+   */
+  public static String[] tokenize(String text) {
+    return split(normalize(text));
+  }
+
+  // Является ли символ частью слова
+  private static boolean isWordChar(int cp) {
+    if (Character.isLetterOrDigit(cp)) {
+      return true;
+    }
+    int type = Character.getType(cp);
+    return type == Character.NON_SPACING_MARK
+        || type == Character.COMBINING_SPACING_MARK;
+  }
+}
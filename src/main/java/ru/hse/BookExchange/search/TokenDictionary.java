@@ -0,0 +1,111 @@
+package ru.hse.BookExchange.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Общий словарь слов книг: слово -> номер слова
+ *
+ * <p>
+ * Книги в индексе хранят номера слов вместо строк, поэтому одинаковые слова
+ * разных книг хранятся один раз, а очки слова можно запоминать по его
+ * номеру. Для каждого слова хранятся и его варианты от анализатора.
+ * Словарь только пополняется: номера слов не меняются, поэтому
+ * старые записи индекса остаются корректными. Пополнять словарь нужно из
+ * одного потока (или под внешней блокировкой), читать - из любого.
+ * </p>
+ */
+public final class TokenDictionary {
+
+  // Анализатор поиска
+  private final Analyzer analyzer;
+  // Слово -> номер
+  private final Map<String, Integer> ids = new HashMap<>();
+  // Номер -> слово
+  private volatile String[] words = new String[1024];
+  // Номер -> варианты слова
+  private volatile String[][] terms = new String[1024][];
+  // Количество слов (запись публикует новые слова читателям)
+  private volatile int size;
+
+  public TokenDictionary(Analyzer analyzer) {
+    this.analyzer = analyzer;
+  }
+
+  /**
+   * Возвращает номера слов, добавляя новые слова в словарь
+   *
+   * @param tokens слова
+   * @return номера слов
+   */
+  int[] getIds(String[] tokens) {
+    int[] res = new int[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      res[i] = getId(tokens[i]);
+    }
+    return res;
+  }
+
+  // Возвращает номер слова, добавляя его в словарь
+  private int getId(String token) {
+    Integer id = ids.get(token);
+    if (id != null) {
+      return id;
+    }
+    int n = size;
+    if (n == words.length) {
+      words = Arrays.copyOf(words, n * 2);
+      terms = Arrays.copyOf(terms, n * 2);
+    }
+    words[n] = token;
+    terms[n] = analyzer.analyze(token);
+    ids.put(token, n);
+    size = n + 1;
+    return n;
+  }
+
+  /**
+   * Возвращает слово по номеру
+   *
+   * @param id номер слова
+   * @return слово
+   */
+  public String getWord(int id) {
+    if (id >= size) {
+      throw new IllegalArgumentException("Unknown token id " + id);
+    }
+    return words[id];
+  }
+
+  /**
+   * Возвращает варианты слова по номеру
+   *
+   * @param id номер слова
+   * @return варианты слова от анализатора
+   */
+  public String[] getTerms(int id) {
+    if (id >= size) {
+      throw new IllegalArgumentException("Unknown token id " + id);
+    }
+    return terms[id];
+  }
+
+  /**
+   * Возвращает анализатор, которым получены варианты слов
+   *
+   * @return анализатор
+   */
+  public Analyzer getAnalyzer() {
+    return analyzer;
+  }
+
+  /**
+   * Возвращает количество слов в словаре
+   *
+   * @return количество слов
+   */
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,27 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+
+/**
+ * Фильтр слов анализатора поиска
+ *
+ * <p>
+ * Получает нормализованное слово (или вариант слова от предыдущего фильтра)
+ * и возвращает его варианты. Слова книги и ключевые слова совпадают, если
+ * у них есть общий вариант (приближенный вариант дает меньше очков).
+ * </p>
+ */
+public interface TokenFilter {
+
+  // Начало приближенного варианта: общий приближенный вариант бывает и у
+  // разных слов, поэтому совпадение по нему оценивается ниже точного
+  String APPROXIMATE_PREFIX = "~";
+
+  /**
+   * Возвращает варианты слова
+   *
+   * @param token слово или его вариант
+   * @return варианты слова
+   */
+  List<String> filter(String token);
+}
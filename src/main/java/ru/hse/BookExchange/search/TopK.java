@@ -0,0 +1,133 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Выбор первых (skip + limit) элементов без сортировки всего списка
+ *
+ * <p>
+ * Используется ограниченная куча на (skip + limit) элементов, поэтому выбор
+ * страницы из n элементов стоит O(n log k), а не O(n log n).
+ * </p>
+ */
+public final class TopK {
+
+  private TopK() {
+  }
+
+  /**
+   * Возвращает страницу элементов в порядке компаратора
+   *
+   * @param items      - элементы
+   * @param comparator - порядок элементов (должен быть строгим, чтобы страницы
+   *                   не пересекались)
+   * @param skip       - сколько пропустить
+   * @param limit      - сколько вернуть
+   * @param <T>        - тип элементов
+   * @return элементы с skip по skip + limit в порядке компаратора
+   */
+  public static <T> List<T> select(Collection<? extends T> items,
+      Comparator<? super T> comparator, int skip, int limit) {
+    if (limit == 0 || skip >= items.size()) {
+      return new ArrayList<>();
+    }
+    long k = (long) skip + limit;
+    List<T> res;
+    if (k >= items.size()) {
+      // Нужны все элементы - просто сортируем
+      res = new ArrayList<>(items);
+    } else {
+      // Куча, на вершине которой худший из k лучших элементов
+      PriorityQueue<T> heap = new PriorityQueue<>((int) k + 1,
+          comparator.reversed());
+      for (T item : items) {
+        if (heap.size() < k) {
+          heap.add(item);
+        } else if (comparator.compare(item, heap.peek()) < 0) {
+          heap.poll();
+          heap.add(item);
+        }
+      }
+      res = new ArrayList<>(heap);
+    }
+    res.sort(comparator);
+    return new ArrayList<>(res.subList(skip, (int) Math.min(k, res.size())));
+  }
+
+  /**
+   * Возвращает k наименьших ключей по возрастанию
+   *
+   * @param keys - ключи (массив не изменяется)
+   * @param k    - сколько ключей вернуть
+   * @return k наименьших ключей по возрастанию
+   */
+  public static long[] selectSmallest(long[] keys, int k) {
+    if (k >= keys.length) {
+      long[] res = keys.clone();
+      Arrays.sort(res);
+      return res;
+    }
+    if (k <= 0) {
+      return new long[0];
+    }
+    // Бинарная куча максимумов на k элементов
+    long[] heap = Arrays.copyOf(keys, k);
+    for (int i = k / 2 - 1; i >= 0; i--) {
+      siftDown(heap, i, k);
+    }
+    for (int i = k; i < keys.length; i++) {
+      if (keys[i] < heap[0]) {
+        heap[0] = keys[i];
+        siftDown(heap, 0, k);
+      }
+    }
+    Arrays.sort(heap);
+    return heap;
+  }
+
+  /**
+   * Сливает два отсортированных массива ключей, оставляя k наименьших
+   *
+   * @param a - ключи по возрастанию
+   * @param b - ключи по возрастанию
+   * @param k - сколько ключей вернуть
+   * @return k наименьших ключей по возрастанию
+   */
+  public static long[] mergeSmallest(long[] a, long[] b, int k) {
+    long[] res = new long[Math.min(k, a.length + b.length)];
+    int i = 0, j = 0;
+    for (int r = 0; r < res.length; r++) {
+      if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+        res[r] = a[i++];
+      } else {
+        res[r] = b[j++];
+      }
+    }
+    return res;
+  }
+
+  // Просеивает элемент кучи максимумов вниз
+  private static void siftDown(long[] heap, int i, int size) {
+    long value = heap[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1] > heap[child]) {
+        child++;
+      }
+      if (heap[child] <= value) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = value;
+  }
+}
@@ -0,0 +1,122 @@
+package ru.hse.BookExchange.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приводит русские и английские слова к общей латинской записи
+ *
+ * <p>
+ * Кириллица транслитерируется, после чего неоднозначные сочетания
+ * упрощаются одинаково для обоих алфавитов ("h" и "х"/"г" -> "g",
+ * "w" -> "v", "y"/"й" -> "i", удвоенные буквы - одна буква и т.п.), поэтому
+ * "Солярис" и "Solaris", "Гарри" и "Harry" совпадают.
+ * </p>
+ *
+ * <p>
+ * Общую запись могут иметь и разные слова ("hall" и "gall"), поэтому она
+ * возвращается как приближенный вариант (с APPROXIMATE_PREFIX) вместе с
+ * самим словом: совпадение только по общей записи оценивается ниже
+ * точного.
+ * </p>
+ */
+public class TransliterationFilter implements TokenFilter {
+
+  // Транслитерация кириллицы
+  private static final Map<Character, String> CYRILLIC = Map.ofEntries(
+      Map.entry('а', "a"), Map.entry('б', "b"), Map.entry('в', "v"),
+      Map.entry('г', "g"), Map.entry('д', "d"), Map.entry('е', "e"),
+      Map.entry('ё', "e"), Map.entry('ж', "zh"), Map.entry('з', "z"),
+      Map.entry('и', "i"), Map.entry('й', "i"), Map.entry('к', "k"),
+      Map.entry('л', "l"), Map.entry('м', "m"), Map.entry('н', "n"),
+      Map.entry('о', "o"), Map.entry('п', "p"), Map.entry('р', "r"),
+      Map.entry('с', "s"), Map.entry('т', "t"), Map.entry('у', "u"),
+      Map.entry('ф', "f"), Map.entry('х', "h"), Map.entry('ц', "c"),
+      Map.entry('ч', "ch"), Map.entry('ш', "sh"), Map.entry('щ', "sh"),
+      Map.entry('ъ', ""), Map.entry('ы', "i"), Map.entry('ь', ""),
+      Map.entry('э', "e"), Map.entry('ю', "iu"), Map.entry('я', "ia"));
+
+  @Override
+  public List<String> filter(String token) {
+    if (token.startsWith(APPROXIMATE_PREFIX)) {
+      return List.of(token);
+    }
+    return List.of(token, APPROXIMATE_PREFIX + fold(transliterate(token)));
+  }
+
+  // Транслитерирует кириллицу
+  private static String transliterate(String word) {
+    StringBuilder sb = new StringBuilder(word.length() + 4);
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      String latin = CYRILLIC.get(c);
+      if (latin == null) {
+        sb.append(c);
+      } else {
+        sb.append(latin);
+      }
+    }
+    return sb.toString();
+  }
+
+  // Упрощает латинскую запись
+  private static String fold(String word) {
+    StringBuilder sb = new StringBuilder(word.length());
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      char next = i + 1 < word.length() ? word.charAt(i + 1) : '\0';
+      if (next == 'h' && (c == 'c' || c == 's' || c == 'z')) {
+        // ch, sh, zh - отдельные звуки
+        sb.append(c).append('h');
+        i++;
+        continue;
+      }
+      if (next == 'h' && (c == 't' || c == 'k' || c == 'p')) {
+        // th -> t, kh -> g, ph -> f
+        sb.append(c == 't' ? 't' : c == 'k' ? 'g' : 'f');
+        i++;
+        continue;
+      }
+      switch (c) {
+        case 'h':
+          sb.append('g');
+          break;
+        case 'c':
+        case 'q':
+          sb.append('k');
+          break;
+        case 'x':
+          sb.append("ks");
+          break;
+        case 'w':
+          sb.append('v');
+          break;
+        case 'y':
+        case 'j':
+          sb.append('i');
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return collapse(sb);
+  }
+
+  // Убирает удвоенные буквы и "i" перед гласной (кроме начала слова)
+  private static String collapse(CharSequence word) {
+    StringBuilder sb = new StringBuilder(word.length());
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      if (sb.length() > 0 && sb.charAt(sb.length() - 1) == c) {
+        continue;
+      }
+      sb.append(c);
+    }
+    for (int i = sb.length() - 2; i > 0; i--) {
+      if (sb.charAt(i) == 'i' && "aeou".indexOf(sb.charAt(i + 1)) >= 0) {
+        sb.deleteCharAt(i);
+      }
+    }
+    return sb.toString();
+  }
+}
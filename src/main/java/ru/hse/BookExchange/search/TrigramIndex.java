@@ -0,0 +1,107 @@
+package ru.hse.BookExchange.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс триграмм слов словаря: триграмма -> слова, в которых она есть
+ *
+ * <p>
+ * Позволяет быстро отобрать слова, у которых достаточно общих триграмм с
+ * ключевым словом, чтобы сравнивать ключевое слово только с ними. Слова
+ * дополняются пробелами по краям, поэтому у коротких слов тоже есть
+ * триграммы, а совпадение начала и конца слова дает дополнительные очки.
+ * </p>
+ */
+public class TrigramIndex {
+
+  // Доля триграмм ключевого слова, которые должны быть у слова-кандидата
+  private static final double MIN_OVERLAP = 0.3;
+
+  // Триграмма -> слова с ней
+  private final Map<String, Set<String>> words = new ConcurrentHashMap<>();
+
+  /**
+   * Добавляет слово в индекс
+   *
+   * @param word слово
+   */
+  public void add(String word) {
+    for (String trigram : getTrigrams(word)) {
+      words.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet())
+          .add(word);
+    }
+  }
+
+  /**
+   * Удаляет слово из индекса
+   *
+   * @param word слово
+   */
+  public void remove(String word) {
+    for (String trigram : getTrigrams(word)) {
+      words.computeIfPresent(trigram, (t, trigramWords) -> {
+        trigramWords.remove(word);
+        return trigramWords.isEmpty() ? null : trigramWords;
+      });
+    }
+  }
+
+  /**
+   * Очищает индекс
+   */
+  public void clear() {
+    words.clear();
+  }
+
+  /**
+   * Возвращает слова, у которых достаточно общих триграмм с ключевым словом
+   *
+   * @param searchWord ключевое слово
+   * @return слова-кандидаты
+   */
+  public List<String> findCandidates(String searchWord) {
+    Set<String> trigrams = getTrigrams(searchWord);
+    int minOverlap = Math.max(1, (int) (trigrams.size() * MIN_OVERLAP));
+
+    // Считаем общие триграммы каждого слова с ключевым
+    Map<String, Integer> overlaps = new HashMap<>();
+    for (String trigram : trigrams) {
+      Set<String> trigramWords = words.get(trigram);
+      if (trigramWords == null) {
+        continue;
+      }
+      for (String word : trigramWords) {
+        overlaps.merge(word, 1, Integer::sum);
+      }
+    }
+
+    List<String> res = new ArrayList<>();
+    for (var overlap : overlaps.entrySet()) {
+      if (overlap.getValue() >= minOverlap) {
+        res.add(overlap.getKey());
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Разбивает слово на триграммы (с двумя пробелами в начале и одним в конце)
+   *
+   * @param word слово
+   * @return триграммы слова
+   */
+  static Set<String> getTrigrams(String word) {
+    String padded = "  " + word + " ";
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      trigrams.add(padded.substring(i, i + 3));
+    }
+    return trigrams;
+  }
+}
@@ -13,6 +13,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import ru.hse.BookExchange.controllers.abstractions.PageCursor;
 
 /**
  * Класс конфигурации
@@ -76,8 +77,11 @@ public class WebSecurity extends WebSecurityConfigurerAdapter {
   @Bean
   CorsConfigurationSource corsConfigurationSource() {
     final UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
-    source.registerCorsConfiguration("/**",
-        new CorsConfiguration().applyPermitDefaultValues());
+    CorsConfiguration configuration = new CorsConfiguration()
+        .applyPermitDefaultValues();
+    // Курсор следующей страницы списков
+    configuration.addExposedHeader(PageCursor.HEADER);
+    source.registerCorsConfiguration("/**", configuration);
     return source;
   }
 }
\ No newline at end of file
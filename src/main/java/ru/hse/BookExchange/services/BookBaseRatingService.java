@@ -0,0 +1,105 @@
+package ru.hse.BookExchange.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+
+/**
+ * Байесовская оценка книг для сортировки по рейтингу
+ *
+ * <p>
+ * Оценка книги считается так, будто у нее есть еще rating.prior.count
+ * оценок, равных априорной средней. Априорная средняя задается свойством
+ * rating.prior.mean, а если оно пустое - равна средней оценке оцененных
+ * книг каталога: она пересчитывается при запуске и по расписанию, вместе с
+ * оценками всех книг. Книги без оценок получают оценку 0 и при сортировке
+ * по рейтингу идут после оцененных.
+ * </p>
+ */
+@Service
+public class BookBaseRatingService {
+
+  // Логгер
+  private static final Logger log = LoggerFactory
+      .getLogger(BookBaseRatingService.class);
+
+  // Априорная средняя оценка, пока в каталоге нет оценок
+  public static final float DEFAULT_PRIOR_MEAN = 3.0F;
+
+  // Репозиторий книг (bookBase)
+  private final BookBaseRepository bookBaseRepository;
+  // Транзакция пересчета оценок
+  private final TransactionTemplate transactionTemplate;
+  // Заданная априорная средняя оценка (null - средняя оценка каталога)
+  private final Float configuredMean;
+  // Вес априорной средней в количестве оценок
+  private final int priorCount;
+  // Текущая априорная средняя оценка
+  private volatile float priorMean;
+
+  public BookBaseRatingService(BookBaseRepository bookBaseRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${rating.prior.mean:}") String mean,
+      @Value("${rating.prior.count:5}") int priorCount) {
+    this.configuredMean = mean.isBlank() ? null : Float.valueOf(mean);
+    if (configuredMean != null && (configuredMean < 1 || configuredMean > 5)) {
+      throw new IllegalArgumentException(
+          "rating.prior.mean must be in range [1;5]");
+    }
+    if (priorCount < 0) {
+      throw new IllegalArgumentException(
+          "rating.prior.count must not be negative");
+    }
+    this.bookBaseRepository = bookBaseRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.priorCount = priorCount;
+    this.priorMean =
+        configuredMean == null ? DEFAULT_PRIOR_MEAN : configuredMean;
+  }
+
+  /**
+   * Возвращает текущую априорную среднюю оценку
+   *
+   * @return априорная средняя оценка
+   */
+  public float getPriorMean() {
+    return priorMean;
+  }
+
+  /**
+   * Атомарно изменяет сумму и количество оценок книги и пересчитывает ее
+   * среднюю и байесовскую оценки
+   *
+   * @param id    - id книги
+   * @param delta - на сколько изменить сумму оценок
+   * @param count - на сколько изменить количество оценок
+   */
+  public void updateRating(Long id, double delta, int count) {
+    bookBaseRepository.updateRating(id, delta, count, priorMean, priorCount);
+  }
+
+  /**
+   * Пересчитывает априорную среднюю оценку (если она не задана) и
+   * байесовские оценки всех книг
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(cron = "${rating.prior.cron:0 30 3 * * *}")
+  public void refresh() {
+    transactionTemplate.executeWithoutResult(status -> {
+      if (configuredMean == null) {
+        Double average = bookBaseRepository.findAverageRating();
+        priorMean = average == null ? DEFAULT_PRIOR_MEAN
+            : average.floatValue();
+      }
+      bookBaseRepository.updateRatingScores(priorMean, priorCount);
+    });
+    log.info("Book ratings recomputed with prior mean " + priorMean);
+  }
+}
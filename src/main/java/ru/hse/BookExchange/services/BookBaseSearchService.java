@@ -0,0 +1,126 @@
+package ru.hse.BookExchange.services;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+import ru.hse.BookExchange.search.BookBaseSuggester;
+import ru.hse.BookExchange.search.SearchEngine;
+import ru.hse.BookExchange.search.SearchField;
+import ru.hse.BookExchange.search.SearchResultCache;
+import ru.hse.BookExchange.search.Suggestion;
+import ru.hse.BookExchange.search.TextNormalizer;
+
+/**
+ * Сервис поиска книг (bookBase)
+ */
+@Service
+public class BookBaseSearchService {
+
+  // Репозиторий книг (bookBase)
+  private final BookBaseRepository bookBaseRepository;
+  // Движок поиска (выбирается свойством search.engine)
+  private final SearchEngine searchEngine;
+  // Кэш результатов частых запросов
+  private final SearchResultCache searchCache;
+  // Подсказки по префиксам
+  private final BookBaseSuggester suggester;
+
+  public BookBaseSearchService(BookBaseRepository bookBaseRepository,
+      SearchEngine searchEngine, BookBaseSuggester suggester,
+      @Value("${search.cache.size:1000}") int cacheSize) {
+    this.bookBaseRepository = bookBaseRepository;
+    this.searchEngine = searchEngine;
+    this.searchCache = new SearchResultCache(cacheSize);
+    this.suggester = suggester;
+  }
+
+  /**
+   * Ищет кники (bookBase) по совпадению названия
+   *
+   * @param searchText - строка поиска
+   * @param limit      - сколько вернуть
+   * @param skip       - сколько пропустить
+   * @return список наиболее подходящих книг
+   */
+  public List<BookBase> searchByTitle(String searchText, int limit,
+      int skip) {
+    return search(searchText, SearchField.title, limit, skip);
+  }
+
+  /**
+   * Ищет кники (bookBase) по совпадению автора
+   *
+   * @param searchText - строка поиска
+   * @param limit      - сколько вернуть
+   * @param skip       - сколько пропустить
+   * @return список наиболее подходящих книг
+   */
+  public List<BookBase> searchByAuthor(String searchText, int limit,
+      int skip) {
+    return search(searchText, SearchField.author, limit, skip);
+  }
+
+  /**
+   * Ищет кники (bookBase) по совпадению автора и/или названия
+   *
+   * @param searchText - строка поиска
+   * @param limit      - сколько вернуть
+   * @param skip       - сколько пропустить
+   * @return список наиболее подходящих книг
+   */
+  public List<BookBase> searchByText(String searchText, int limit,
+      int skip) {
+    return search(searchText, SearchField.text, limit, skip);
+  }
+
+  /**
+   * Возвращает подсказки по введенной части строки поиска
+   *
+   * @param prefix - введенная часть строки поиска
+   * @param limit  - сколько вернуть
+   * @return подсказки в порядке убывания рейтинга
+   */
+  public List<Suggestion> suggest(String prefix, int limit) {
+    return suggester.suggest(prefix, limit);
+  }
+
+  /**
+   * Обновляет книгу в поиске после ее добавления или изменения
+   *
+   * @param bookBase сохраненная книга
+   */
+  public void onSaved(BookBase bookBase) {
+    searchEngine.onSaved(bookBase);
+    suggester.add(bookBase);
+    // Сбрасываем кэш после обновления движка, чтобы не закэшировать старое
+    searchCache.invalidate();
+  }
+
+  /**
+   * Убирает книгу из поиска после ее удаления
+   *
+   * @param id id удаленной книги
+   */
+  public void onDeleted(Long id) {
+    searchEngine.onDeleted(id);
+    suggester.remove(id);
+    searchCache.invalidate();
+  }
+
+  private List<BookBase> search(String searchText, SearchField field,
+      int limit, int skip) {
+    // Версию берем до поиска: если каталог изменится, результат не сохранится
+    long version = searchCache.getVersion();
+    var key = new SearchResultCache.Key(TextNormalizer.normalize(searchText),
+        field, skip, limit);
+    List<Long> ids = searchCache.get(key);
+    if (ids == null) {
+      ids = searchEngine.search(searchText, field, limit, skip);
+      searchCache.put(key, version, ids);
+    }
+    // Книги загружаем заново: скрытие приватных книг зависит от пользователя
+    return bookBaseRepository.findAllByIdInOrder(ids);
+  }
+}
@@ -2,47 +2,66 @@ package ru.hse.BookExchange.services;
 
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.EnumUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestParam;
 import ru.hse.BookExchange.controllers.AuthenticationController;
 import ru.hse.BookExchange.controllers.BookBaseController.SortType;
 import ru.hse.BookExchange.controllers.abstractions.DatedEntityController;
-import ru.hse.BookExchange.exceptions.BookBaseNotFoundException;
+import ru.hse.BookExchange.controllers.abstractions.PageCursor;
+import ru.hse.BookExchange.exceptions.EntityNotFoundException;
 import ru.hse.BookExchange.exceptions.ForbiddenException;
 import ru.hse.BookExchange.models.Book.PublicityStatus;
 import ru.hse.BookExchange.models.BookBase;
 import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.projections.BookBaseView;
+import ru.hse.BookExchange.recommendations.RecommendationEngine;
+import ru.hse.BookExchange.recommendations.RecommendationList;
+import ru.hse.BookExchange.recommendations.RecommendationStore;
 import ru.hse.BookExchange.repositories.BookBaseRepository;
+import ru.hse.BookExchange.repositories.DatedEntityRepository;
+import ru.hse.BookExchange.repositories.OffsetPageRequest;
 
 @Service
 public class BookBaseService {
 
-  private final Map<Long, List<BookBase>> recommendationMap = new HashMap<>();
+  // Меньше скольких рекомендаций добирать книги с наибольшим рейтингом
+  private static final int MIN_RECOMMENDATIONS = 30;
+
   private final BookBaseRepository bookBaseRepository;
+  private final RecommendationEngine recommendationEngine;
+  private final RecommendationStore recommendationStore;
   private final AuthenticationController auth;
 
   public BookBaseService(
       BookBaseRepository bookBaseRepository,
+      RecommendationEngine recommendationEngine,
+      RecommendationStore recommendationStore,
       AuthenticationController auth) {
     this.bookBaseRepository = bookBaseRepository;
+    this.recommendationEngine = recommendationEngine;
+    this.recommendationStore = recommendationStore;
     this.auth = auth;
   }
 
 
-  public List<BookBase> all(
+  public List<BookBaseView> all(
       @RequestParam(required = false, defaultValue = "0") int skip,
       @RequestParam(required = false, defaultValue = "100") int limit,
       @RequestParam(required = false, defaultValue = "none") String sortBy,
       @RequestParam(required = false, defaultValue = "true") boolean ascending,
       @RequestParam(required = false) List<Long> ids,
+      @RequestParam(required = false) String after,
 
       @Deprecated
       @RequestParam(required = false, defaultValue = "false") boolean latest,
@@ -51,14 +70,14 @@ public class BookBaseService {
       Authentication authentication) {
     if (ids != null) {
       User user = auth.isUser(authentication);
-      //List<BookBase> res = bookBaseRepository.findAllById(ids);
-      List<BookBase> res = new ArrayList<>();
-      // Чтобы гарантировать ту же последовательность id приходится собирать вручную
-      for (int i = 0; i < ids.size(); i++) {
-        final int finalI = i;
-        res.add(bookBaseRepository.findById(ids.get(i))
-            .orElseThrow(() -> new BookBaseNotFoundException(ids.get(finalI))));
-        hidePrivateBooks(res.get(res.size() - 1), user);
+      // Одна выборка на связь для всех ids, порядок ids сохраняется
+      List<BookBaseView> res = getViews(ids, user);
+      Set<Long> found = res.stream().map(BookBaseView::getId)
+          .collect(Collectors.toSet());
+      List<Long> missing = ids.stream().filter(id -> !found.contains(id))
+          .collect(Collectors.toList());
+      if (!missing.isEmpty()) {
+        throw new EntityNotFoundException("bookBase", missing);
       }
       return res;
     }
@@ -70,8 +89,6 @@ public class BookBaseService {
               + " at the same time. Moreover, use sortBy argument instead them!");
     }
 
-    var stream = bookBaseRepository.findAllBookBases().stream();
-
     SortType sortType;
     try {
       sortType = SortType.valueOf(sortBy);
@@ -90,82 +107,218 @@ public class BookBaseService {
               + " and sortBy argument at the same time. Use sortBy!");
     }
 
-    if (sortType == SortType.date || latest) {
-      stream = stream.sorted(Collections.reverseOrder());
-    } else if (sortType == SortType.recommended || recommended) {
+    List<Long> pageIds;
+    if (after != null && (skip != 0 || sortType == SortType.recommended
+        || recommended || (sortType == SortType.none && !latest))) {
+      throw new IllegalArgumentException("after argument can be used only"
+          + " with sortBy=date or sortBy=rate and without skip!");
+    }
+    if (sortType == SortType.recommended || recommended) {
       if (authentication == null) {
         throw new ForbiddenException(
             "You must specify authentication token to access recommendations.");
       }
-      var curRecommendations = getRecommendations(authentication, skip, limit);
-      stream = curRecommendations.stream();
-    } else if (sortType == SortType.rate) {
-      stream = stream.sorted(Comparator.comparingDouble(BookBase::getRating));
+      long[] curRecommendations = getRecommendations(authentication, skip,
+          limit);
+      // Загружаем только книги нужной страницы
+      pageIds = getPage(Arrays.stream(curRecommendations).boxed()
+          .collect(Collectors.toList()), skip, limit, ascending);
+    } else {
+      Sort order = getOrder(sortType, latest, ascending);
+      if (limit == 0) {
+        pageIds = new ArrayList<>();
+      } else if (after != null) {
+        pageIds = findPageIdsAfter(PageCursor.decode(after), limit, order,
+            sortType == SortType.rate, ascending);
+      } else {
+        // Сортирует и выбирает страницу бд (по индексу)
+        pageIds = bookBaseRepository
+            .findBookBaseIds(new OffsetPageRequest(skip, limit, order));
+      }
     }
 
-    // Разворачиваем массив, если порядок обратный
-    if (!ascending || SortType.valueOf(sortBy) == SortType.rate) {
-      var temp = stream.collect(Collectors.toList());
-      Collections.reverse(temp);
-      stream = temp.stream();
+    List<BookBaseView> res = getViews(pageIds,
+        auth.isUser(authentication));
+    if (after == null) {
+      return res;
     }
+    if (sortType == SortType.rate) {
+      // Ключ курсора - биты байесовской оценки книги
+      PageCursor.setNext(res, limit, bookBase -> new PageCursor(
+          Float.floatToIntBits(bookBase.getRatingScore()), bookBase.getId()));
+    } else {
+      PageCursor.setNext(res, limit, bookBase -> new PageCursor(
+          bookBase.getCreationDate().getTime(), bookBase.getId()));
+    }
+    return res;
+  }
 
-    User user = auth.isUser(authentication);
-    List<BookBase> res = stream.skip(skip).limit(limit)
-        .collect(Collectors.toList());
-
-    // Прячем приватные книги
-    res.forEach((b) -> hidePrivateBooks(b, user));
+  /**
+   * Загружает книги для списка: поля книг одним запросом и id связанных
+   * записей одним запросом на каждую связь (без загрузки коллекций каждой
+   * книги) для каждых ID_CHUNK_SIZE id. Приватные книги для передачи других
+   * пользователей не возвращаются (как в hidePrivateBooks)
+   *
+   * @param ids  - id книг
+   * @param user - пользователь, запросивший книги
+   * @return найденные книги в порядке ids (удаленные книги пропускаются)
+   */
+  public List<BookBaseView> getViews(List<Long> ids, User user) {
+    List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<Long, BookBaseView> views = new HashMap<>();
+    boolean moderator = user.getRole().hasModeratorPermits();
+    for (int from = 0; from < distinct.size();
+        from += DatedEntityRepository.ID_CHUNK_SIZE) {
+      List<Long> chunk = distinct.subList(from, Math.min(
+          from + DatedEntityRepository.ID_CHUNK_SIZE, distinct.size()));
+      for (BookBaseView view : bookBaseRepository.findViews(chunk)) {
+        views.put(view.getId(), view);
+      }
+      for (Object[] row : bookBaseRepository.findGenreIds(chunk)) {
+        views.get((Long) row[0]).getGenreIds().add((Long) row[1]);
+      }
+      for (Object[] row : bookBaseRepository.findBookIds(chunk)) {
+        if (moderator || row[2] != PublicityStatus.Private
+            || user.getId().equals(row[3])) {
+          views.get((Long) row[0]).getBookIds().add((Long) row[1]);
+        }
+      }
+      for (Object[] row : bookBaseRepository.findWishersIds(chunk)) {
+        views.get((Long) row[0]).getWishersIds().add((Long) row[1]);
+      }
+    }
 
+    List<BookBaseView> res = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      if (views.containsKey(id)) {
+        res.add(views.get(id));
+      }
+    }
     return res;
   }
 
-  public List<BookBase> getRecommendations(Authentication authentication,
-      int skip, int limit) {
-    Long userId = auth.isUser(authentication).getId();
+  /**
+   * Возвращает id страницы книг после книги курсора (по индексу, без
+   * пропуска строк)
+   *
+   * @param cursor      - курсор предыдущей страницы (null - первая страница)
+   * @param limit       - сколько вернуть
+   * @param order       - порядок книг
+   * @param byRate      - отсортированы ли книги по рейтингу (иначе по дате)
+   * @param newestFirst - идут ли сначала новые книги (для сортировки по дате)
+   * @return id книг страницы
+   */
+  private List<Long> findPageIdsAfter(PageCursor cursor, int limit,
+      Sort order, boolean byRate, boolean newestFirst) {
+    OffsetPageRequest page = new OffsetPageRequest(0, limit, Sort.unsorted());
+    if (cursor == null) {
+      return bookBaseRepository
+          .findBookBaseIds(new OffsetPageRequest(0, limit, order));
+    } else if (byRate) {
+      return bookBaseRepository.findBookBaseIdsByScoreAfter(
+          Float.intBitsToFloat((int) cursor.getKey()), cursor.getId(), page);
+    } else if (newestFirst) {
+      return bookBaseRepository.findBookBaseIdsCreatedBefore(
+          cursor.getDate(), cursor.getId(), page);
+    }
+    return bookBaseRepository.findBookBaseIdsCreatedAfter(cursor.getDate(),
+        cursor.getId(), page);
+  }
 
-    if (recommendationMap.containsKey(userId) && skip != 0) {
-      return recommendationMap.get(userId);
+  /**
+   * Возвращает порядок книг для типа сортировки
+   *
+   * @param sortType  - тип сортировки
+   * @param latest    - устаревший флаг сортировки по дате
+   * @param ascending - порядок сортировки
+   * @return порядок книг
+   */
+  private static Sort getOrder(SortType sortType, boolean latest,
+      boolean ascending) {
+    if (sortType == SortType.date || latest) {
+      // Сначала новые (при !ascending - сначала старые)
+      Sort newestFirst = Sort.by(Direction.DESC, "creationDate", "id");
+      return ascending ? newestFirst
+          : Sort.by(Direction.ASC, "creationDate", "id");
+    }
+    if (sortType == SortType.rate) {
+      /* Сначала книги с наибольшей байесовской оценкой (независимо от
+         ascending), чтобы одна оценка 5 не поднимала книгу в начало */
+      return Sort.by(Direction.DESC, "ratingScore", "id");
     }
+    // Без сортировки - в порядке добавления (при !ascending - с конца)
+    return Sort.by(ascending ? Direction.ASC : Direction.DESC, "id");
+  }
 
-    var newRecommendations = generateRecommendations(authentication, skip,
-        limit);
-    recommendationMap.put(userId, newRecommendations);
-    return newRecommendations;
+  /**
+   * Возвращает страницу списка, не копируя весь список
+   *
+   * @param list      - список
+   * @param skip      - сколько пропустить
+   * @param limit     - сколько вернуть
+   * @param ascending - брать ли элементы с начала списка (иначе с конца)
+   * @return страница списка
+   */
+  private static <T> List<T> getPage(List<T> list, int skip, int limit,
+      boolean ascending) {
+    List<T> res = new ArrayList<>();
+    for (int i = skip; i < list.size() && res.size() < limit; i++) {
+      res.add(list.get(ascending ? i : list.size() - 1 - i));
+    }
+    return res;
   }
 
-  private List<BookBase> generateRecommendations(Authentication
-      authentication,
+  /**
+   * Возвращает id рекомендованных пользователю книг
+   *
+   * @param authentication - данные аутентификации
+   * @param skip           - сколько пропустить
+   * @param limit          - сколько вернуть
+   * @return id книг (не меньше skip + limit, если книг в каталоге хватает)
+   */
+  public long[] getRecommendations(Authentication authentication,
       int skip, int limit) {
     User user = auth.isUser(authentication);
-    var curRecommendations = bookBaseRepository.getRecommendations(user);
-
-    // Если рекомендаций слишком мало - добавил книги с самым большим рейтингом
-    if (curRecommendations.size() < 30) {
-      List<BookBase> ratedBookBases = all(0, Integer.MAX_VALUE,
-          "rate", false, null, false, false, authentication);
-      // Добавляем по 30 книг, пока не наберется нужное количетсво
-      for (int i = 0; i < ratedBookBases.size(); i += 30) {
-        curRecommendations
-            .addAll(ratedBookBases.stream().skip(i).limit(30).collect(
-                Collectors.toList()));
-        // Убираем повторы
-        curRecommendations = curRecommendations.stream().distinct().collect(
-            Collectors.toList());
-        if (curRecommendations.size() >= limit + skip) {
-          break;
-        }
-      }
+    int minSize = Math.max(MIN_RECOMMENDATIONS, skip + limit);
 
+    long[] cached = recommendationStore.get(user.getId());
+    // Сохраненных рекомендаций может не хватить на дальнюю страницу
+    if (cached != null && cached.length >= minSize) {
+      return cached;
     }
-    return curRecommendations;
+
+    // Фоновый пересчет еще не дошел до пользователя: считаем по готовой
+    // модели, не обращаясь к бд
+    long version = recommendationStore.getVersion();
+    /* Если рекомендаций слишком мало - добираем книги с наибольшей ожидаемой
+       оценкой пользователя, затем с самым большим рейтингом */
+    RecommendationList list = recommendationEngine
+        .recommend(user.getId(), user.getWishListIds(), minSize);
+    recommendationStore.put(user.getId(), version, list);
+    return list.getIds();
   }
 
+  /**
+   * Обновляет рекомендации пользователя после изменения его избранного,
+   * учитывая только добавленную или удаленную книгу
+   *
+   * @param user     - пользователь (с уже измененным избранным)
+   * @param bookBase - добавленная или удаленная книга
+   * @param added    - добавлена ли книга (иначе удалена)
+   */
+  public void onWishListChanged(User user, BookBase bookBase, boolean added) {
+    List<Long> wished = user.getWishListIds();
+    recommendationStore.update(user.getId(), list -> recommendationEngine
+        .update(list, user.getId(), wished, bookBase.getId(), added,
+            Math.max(MIN_RECOMMENDATIONS, list.getIds().length)));
+  }
 
   public void hidePrivateBooks(BookBase bookBase, User user) {
+    if (user.getRole().hasModeratorPermits()) {
+      return;
+    }
     bookBase.getBooks().removeIf(
         book -> book.getPublicityStatus() == PublicityStatus.Private
-            && book.getOwner() != user && !user.getRole()
-            .hasModeratorPermits());
+            && book.getOwner() != user);
   }
 }
\ No newline at end of file
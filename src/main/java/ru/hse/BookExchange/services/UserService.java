@@ -0,0 +1,82 @@
+package ru.hse.BookExchange.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+import ru.hse.BookExchange.models.Book.PublicityStatus;
+import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.projections.UserView;
+import ru.hse.BookExchange.repositories.DatedEntityRepository;
+import ru.hse.BookExchange.repositories.UserRepository;
+
+/**
+ * Сервис пользователей
+ */
+@Service
+public class UserService {
+
+  // Репозиторий пользователей
+  private final UserRepository userRepository;
+
+  public UserService(UserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  /**
+   * Загружает пользователей для списка: поля пользователей одним запросом и
+   * id связанных записей одним запросом на каждую связь (без загрузки
+   * коллекций каждого пользователя) для каждых ID_CHUNK_SIZE id. Приватные
+   * книги видны только модераторам (как в switchExchangeListToPublic)
+   *
+   * @param ids            - id пользователей
+   * @param requestingUser - пользователь, запросивший список
+   * @return найденные пользователи в порядке ids (удаленные пропускаются)
+   */
+  public List<UserView> getViews(List<Long> ids, User requestingUser) {
+    List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<Long, UserView> views = new HashMap<>();
+    boolean moderator = requestingUser.getRole().hasModeratorPermits();
+    for (int from = 0; from < distinct.size();
+        from += DatedEntityRepository.ID_CHUNK_SIZE) {
+      List<Long> chunk = distinct.subList(from, Math.min(
+          from + DatedEntityRepository.ID_CHUNK_SIZE, distinct.size()));
+      for (UserView view : userRepository.findViews(chunk)) {
+        views.put(view.getId(), view);
+      }
+      for (Object[] row : userRepository.findExchangeListIds(chunk)) {
+        if (moderator || row[2] == PublicityStatus.Public) {
+          views.get((Long) row[0]).getExchangeListIds().add((Long) row[1]);
+        }
+      }
+      for (Object[] row : userRepository.findWishListIds(chunk)) {
+        views.get((Long) row[0]).getWishListIds().add((Long) row[1]);
+      }
+      for (Object[] row : userRepository.findBookBaseAddRequestIds(chunk)) {
+        views.get((Long) row[0]).getBookBaseAddRequestIds()
+            .add((Long) row[1]);
+      }
+      for (Object[] row : userRepository.findComplaintIds(chunk)) {
+        views.get((Long) row[0]).getComplaintsIds().add((Long) row[1]);
+      }
+      for (Object[] row : userRepository.findOutcomingRequestIds(chunk)) {
+        views.get((Long) row[0]).getOutcomingBookExchangeRequestIds()
+            .add((Long) row[1]);
+      }
+      for (Object[] row : userRepository.findIncomingRequestIds(chunk)) {
+        views.get((Long) row[0]).getIncomingBookExchangeRequestIds()
+            .add((Long) row[1]);
+      }
+    }
+
+    List<UserView> res = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      if (views.containsKey(id)) {
+        res.add(views.get(id));
+      }
+    }
+    return res;
+  }
+}
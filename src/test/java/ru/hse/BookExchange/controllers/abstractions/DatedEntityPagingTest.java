@@ -0,0 +1,209 @@
+package ru.hse.BookExchange.controllers.abstractions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.hse.BookExchange.exceptions.EntityNotFoundException;
+import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.User.Role;
+import ru.hse.BookExchange.repositories.UserRepository;
+
+/**
+ * Страницы записей с датой создания из бд: совпадение с сортировкой всех
+ * записей в памяти
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+class DatedEntityPagingTest {
+
+  // Записей (кратно LIMIT - последняя страница заполнена)
+  private static final int COUNT = 30;
+  // Размер страницы
+  private static final int LIMIT = 6;
+  // Видны только пользователи с этой ролью
+  private static final Specification<User> MODERATORS =
+      (user, query, builder) -> builder.equal(user.get("role"),
+          Role.Moderator);
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private UserRepository userRepository;
+
+  private DatedEntityController<User> controller;
+  private final List<User> users = new ArrayList<>();
+
+  @BeforeEach
+  void createData() {
+    controller = new DatedEntityController<>(userRepository) {
+    };
+    for (int i = 0; i < COUNT; i++) {
+      User user = new User(i % 3 == 0 ? Role.User : Role.Moderator,
+          "user" + i, "", "User", null);
+      // Записи, добавленные в одну секунду, различаются только id
+      user.setCreationDate(new Date(1_600_000_000_000L
+          + (i * 7 % 4) * 1000L));
+      users.add(entityManager.persist(user));
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @AfterEach
+  void resetRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void offsetPagesMatchSortedEntities() {
+    for (Specification<User> filter : List.of(MODERATORS, everyone())) {
+      for (boolean latest : new boolean[]{false, true}) {
+        List<Long> expected = getOrder(filter == MODERATORS, latest);
+        for (int skip = 0; skip <= expected.size() + 1; skip += 4) {
+          List<Long> page = expected.subList(Math.min(skip, expected.size()),
+              Math.min(skip + LIMIT, expected.size()));
+          assertEquals(page, ids(controller.findPage(skip, LIMIT, latest,
+              null, filter)), latest + ", " + skip);
+          assertEquals(page, controller.findPageIds(skip, LIMIT, latest,
+              null, filter));
+        }
+        assertTrue(controller.findPage(0, 0, latest, null, filter).isEmpty());
+      }
+    }
+    // Без условия видимости - все записи
+    assertEquals(getOrder(false, true).subList(0, LIMIT),
+        ids(controller.findPage(0, LIMIT, true, null, null)));
+    assertThrows(IllegalArgumentException.class,
+        () -> controller.findPage(0, -1, false, null, null));
+  }
+
+  @Test
+  void cursorPagesMatchSortedEntities() {
+    for (Specification<User> filter : List.of(MODERATORS, everyone())) {
+      // С курсором записи всегда идут от новых к старым
+      List<Long> expected = getOrder(filter == MODERATORS, true);
+      for (int limit : new int[]{LIMIT, 4, 7}) {
+        for (boolean latest : new boolean[]{false, true}) {
+          assertEquals(expected, walk(filter, limit, latest),
+              filter + ", " + limit + ", " + latest);
+        }
+      }
+    }
+  }
+
+  @Test
+  void newerEntitiesDoNotShiftCursorPages() {
+    List<Long> expected = getOrder(false, true);
+    setResponse();
+    List<Long> res = ids(controller.findPage(0, LIMIT, true, "", null));
+    String after = getResponse().getHeader(PageCursor.HEADER);
+
+    // Новая запись (новее всех) и запись с той же датой, что у записи
+    // курсора, добавляются после чтения первой страницы
+    User last = users.stream().filter(user -> user.getId().equals(
+        expected.get(LIMIT - 1))).findFirst().orElseThrow();
+    User newest = new User(Role.User, "newest", "", "User", null);
+    newest.setCreationDate(new Date(last.getCreationDate().getTime()
+        + 60_000L));
+    entityManager.persist(newest);
+    User tied = new User(Role.User, "tied", "", "User", null);
+    tied.setCreationDate(last.getCreationDate());
+    entityManager.persist(tied);
+    entityManager.flush();
+    entityManager.clear();
+
+    setResponse();
+    res.addAll(ids(controller.findPage(0, COUNT, false, after, null)));
+    assertEquals(expected, res);
+    assertNull(getResponse().getHeader(PageCursor.HEADER));
+    assertThrows(IllegalArgumentException.class,
+        () -> controller.findPage(LIMIT, LIMIT, true, after, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> controller.findPageIds(0, LIMIT, true, "???", null));
+  }
+
+  @Test
+  void idsLookupKeepsOrderAndReportsMissingIds() {
+    List<Long> ids = new ArrayList<>(getOrder(false, true));
+    ids.add(ids.get(3));
+    assertEquals(ids, ids(controller.all(0, 1, false, ids, null, null)));
+
+    long missing = ids.stream().mapToLong(Long::longValue).max()
+        .orElseThrow() + 1000;
+    EntityNotFoundException ex = assertThrows(EntityNotFoundException.class,
+        () -> controller.all(0, 100, false,
+            List.of(ids.get(0), missing, missing + 1), null, null));
+    assertEquals("Could not find entity with ids = [" + missing + ", "
+        + (missing + 1) + "]", ex.getMessage());
+  }
+
+  /* Листает записи по курсорам из заголовка ответа, пока страницы
+     заполнены: курсор есть только у заполненной страницы */
+  private List<Long> walk(Specification<User> filter, int limit,
+      boolean latest) {
+    List<Long> res = new ArrayList<>();
+    String after = "";
+    while (after != null) {
+      setResponse();
+      List<Long> ids = ids(controller.findPage(0, limit, latest, after,
+          filter));
+      // Те же записи без загрузки (курсор не пишется)
+      assertEquals(ids, controller.findPageIds(0, limit, latest, after,
+          filter));
+      res.addAll(ids);
+      after = getResponse().getHeader(PageCursor.HEADER);
+      assertEquals(after != null, ids.size() == limit, res.toString());
+    }
+    return res;
+  }
+
+  private static void setResponse() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(
+        new MockHttpServletRequest(), new MockHttpServletResponse()));
+  }
+
+  private static MockHttpServletResponse getResponse() {
+    return (MockHttpServletResponse) ((ServletRequestAttributes)
+        RequestContextHolder.getRequestAttributes()).getResponse();
+  }
+
+  // Условие, под которое подходят все записи
+  private static Specification<User> everyone() {
+    return (user, query, builder) -> builder.conjunction();
+  }
+
+  // Порядок записей: по id или сначала новые
+  private List<Long> getOrder(boolean moderatorsOnly, boolean latest) {
+    Comparator<User> order = Comparator.comparing(User::getId);
+    if (latest) {
+      order = Comparator.comparing(User::getCreationDate)
+          .thenComparing(User::getId).reversed();
+    }
+    return users.stream()
+        .filter(user -> !moderatorsOnly || user.getRole() == Role.Moderator)
+        .sorted(order).map(User::getId).collect(Collectors.toList());
+  }
+
+  private static List<Long> ids(List<User> users) {
+    return users.stream().map(User::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,204 @@
+package ru.hse.BookExchange.controllers.abstractions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.hse.BookExchange.models.Avatar;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.models.BookBase.Language;
+import ru.hse.BookExchange.models.BookBasePhoto;
+import ru.hse.BookExchange.models.BookBaseRequest;
+import ru.hse.BookExchange.models.Genre;
+import ru.hse.BookExchange.models.abstractions.DatedEntity;
+
+/**
+ * Перенос незаданных полей при PUT: совпадение с переносом через reflection
+ * и замер времени
+ */
+class FieldMergerTest {
+
+  @Test
+  void keepsStoredCoverAndFields() {
+    BookBasePhoto photo = new BookBasePhoto();
+    BookBase cur = newBookBase(photo);
+    BookBase newBookBase = new BookBase();
+    newBookBase.setTitle("Renamed");
+
+    FieldMerger.of(BookBase.class).merge(newBookBase, cur);
+    assertEquals("Renamed", newBookBase.getTitle());
+    assertEquals("Tolkien", newBookBase.getAuthor());
+    assertEquals(Language.ENG, newBookBase.getLanguage());
+    assertEquals(1954, newBookBase.getPublishYear());
+    assertSame(photo, newBookBase.getPhoto());
+    assertSame(cur.getGenres(), newBookBase.getGenres());
+  }
+
+  @Test
+  void keepsGivenCollections() {
+    BookBase cur = newBookBase(null);
+    BookBase newBookBase = new BookBase();
+    List<Genre> genres = List.of(new Genre());
+    newBookBase.setGenres(genres);
+
+    FieldMerger.of(BookBase.class).merge(newBookBase, cur);
+    assertSame(genres, newBookBase.getGenres());
+  }
+
+  @Test
+  void mergesParentRecordFields() {
+    BookBaseRequest cur = new BookBaseRequest(newBookBase(null));
+    BookBaseRequest newRequest = new BookBaseRequest();
+    newRequest.setTitle("Renamed");
+
+    FieldMerger.of(BookBaseRequest.class).merge(newRequest, cur);
+    assertEquals("Renamed", newRequest.getTitle());
+    assertEquals("Tolkien", newRequest.getAuthor());
+    assertEquals(cur.getStatus(), newRequest.getStatus());
+  }
+
+  @Test
+  void skipsAbstractParentFields() {
+    Avatar cur = new Avatar();
+    cur.setImage(new byte[]{1, 2, 3});
+    Avatar newAvatar = new Avatar();
+
+    FieldMerger.of(Avatar.class).merge(newAvatar, cur);
+    assertNull(newAvatar.getImage());
+  }
+
+  @Test
+  void matchesReflectiveMerge() throws IllegalAccessException {
+    for (Class<?> type : List.of(BookBase.class, BookBaseRequest.class,
+        Avatar.class)) {
+      DatedEntity cur = newEntity(type, "cur");
+      DatedEntity expected = newEntity(type, null);
+      DatedEntity actual = newEntity(type, null);
+      migrateFields(expected, cur);
+      FieldMerger.of(type).merge(actual, cur);
+      for (Field field : allFields(type)) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        field.setAccessible(true);
+        assertSame(field.get(expected), field.get(actual),
+            () -> type.getSimpleName() + "." + field.getName());
+      }
+    }
+  }
+
+  /**
+   * Замер переноса полей через MethodHandle и через reflection (запуск:
+   * mvn test -Dtest=FieldMergerTest -Dmerge.benchmark=true)
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "merge.benchmark", matches = "true")
+  void benchmark() {
+    BookBase cur = newBookBase(new BookBasePhoto());
+    FieldMerger merger = FieldMerger.of(BookBase.class);
+    long merged = measure(() -> merger.merge(new BookBase(), cur));
+    long reflective = measure(() -> migrateFields(new BookBase(), cur));
+    System.out.printf("BookBase PUT merge: FieldMerger %d ns,"
+        + " reflection %d ns%n", merged, reflective);
+  }
+
+  // Медиана времени выполнения (нс) после разогрева
+  private static long measure(Runnable run) {
+    for (int i = 0; i < 100000; i++) {
+      run.run();
+    }
+    long[] times = new long[31];
+    for (int i = 0; i < times.length; i++) {
+      long start = System.nanoTime();
+      for (int k = 0; k < 1000; k++) {
+        run.run();
+      }
+      times[i] = (System.nanoTime() - start) / 1000;
+    }
+    Arrays.sort(times);
+    return times[times.length / 2];
+  }
+
+  private static BookBase newBookBase(BookBasePhoto photo) {
+    BookBase res = new BookBase();
+    res.setAuthor("Tolkien");
+    res.setTitle("The Fellowship of the Ring");
+    res.setLanguage(Language.ENG);
+    res.setPublishYear(1954);
+    res.setNumberOfPages(423);
+    res.setGenres(List.of(new Genre()));
+    res.setPhoto(photo);
+    return res;
+  }
+
+  // Запись, у которой заданы (value != null) или не заданы строковые поля
+  private static DatedEntity newEntity(Class<?> type, String value)
+      throws IllegalAccessException {
+    DatedEntity res;
+    try {
+      res = (DatedEntity) type.getConstructor().newInstance();
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException(ex);
+    }
+    if (value != null) {
+      for (Field field : allFields(type)) {
+        if (field.getType() == String.class) {
+          field.setAccessible(true);
+          field.set(res, value + "." + field.getName());
+        }
+      }
+      if (res instanceof Avatar) {
+        ((Avatar) res).setImage(new byte[]{1});
+      }
+    }
+    return res;
+  }
+
+  // Поля класса и всех его родителей до DatedEntity
+  private static List<Field> allFields(Class<?> type) {
+    List<Field> res = new ArrayList<>();
+    for (Class<?> cur = type; cur != DatedEntity.class;
+        cur = cur.getSuperclass()) {
+      res.addAll(Arrays.asList(cur.getDeclaredFields()));
+    }
+    return res;
+  }
+
+  // Перенос полей через reflection при каждом вызове (поля класса и
+  // родителя из пакета моделей)
+  private static void migrateFields(DatedEntity newEntity, DatedEntity cur) {
+    Class<?> type = newEntity.getClass();
+    migrateFields(newEntity, cur, type.getDeclaredFields());
+    if (type.getSuperclass().getPackageName()
+        .equals("ru.hse.BookExchange.models")) {
+      migrateFields(newEntity, cur, type.getSuperclass().getDeclaredFields());
+    }
+  }
+
+  private static void migrateFields(DatedEntity newEntity, DatedEntity cur,
+      Field[] fields) {
+    try {
+      for (var field : fields) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        field.setAccessible(true);
+        if (field.get(newEntity) == null || (
+            field.get(newEntity) instanceof Collection
+                && ((Collection<?>) field.get(newEntity)).size() == 0)) {
+          field.set(newEntity, field.get(cur));
+        }
+      }
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package ru.hse.BookExchange.recommendations;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.hse.BookExchange.repositories.BookBaseRateRepository;
+
+/**
+ * Обучение ALS на синтетических оценках с заложенной структурой низкого
+ * ранга
+ */
+class AlsTrainerTest {
+
+  private static final int USERS = 80;
+  private static final int ITEMS = 50;
+  // Ранг заложенной структуры
+  private static final int TRUE_RANK = 2;
+  // Параметры обучения
+  private static final int RANK = 4;
+  private static final float LAMBDA = 0.05F;
+  private static final int ITERATIONS = 15;
+  private static final long SEED = 42;
+
+  // Истинные оценки (пользователь x книга)
+  private static float[][] truth;
+  // Скрытая от обучения пара книг пользователя: лучшая и худшая по truth
+  private static int[] heldOutBest, heldOutWorst;
+  // Обучающие оценки
+  private static RatingMatrix training;
+  // Те же оценки строками из бд (пользователь, книга, оценка)
+  private static final List<Object[]> rates = new ArrayList<>();
+
+  @BeforeAll
+  static void createRatings() {
+    Random random = new Random(7);
+    float[][] users = randomVectors(random, USERS);
+    float[][] items = randomVectors(random, ITEMS);
+    truth = new float[USERS][ITEMS];
+    for (int u = 0; u < USERS; u++) {
+      for (int i = 0; i < ITEMS; i++) {
+        float dot = 0;
+        for (int p = 0; p < TRUE_RANK; p++) {
+          dot += users[u][p] * items[i][p];
+        }
+        truth[u][i] = Math.max(1, Math.min(5, 3 + dot));
+      }
+    }
+
+    heldOutBest = new int[USERS];
+    heldOutWorst = new int[USERS];
+    List<Long> rows = new ArrayList<>();
+    List<Long> cols = new ArrayList<>();
+    List<Float> values = new ArrayList<>();
+    for (int u = 0; u < USERS; u++) {
+      // Пользователь оценил примерно 60% книг
+      List<Integer> rated = new ArrayList<>();
+      for (int i = 0; i < ITEMS; i++) {
+        if (random.nextFloat() < 0.6F) {
+          rated.add(i);
+        }
+      }
+      // Из оставшихся книг скрываем лучшую и худшую
+      int best = -1, worst = -1;
+      for (int i = 0; i < ITEMS; i++) {
+        if (!rated.contains(i)) {
+          if (best < 0 || truth[u][i] > truth[u][best]) {
+            best = i;
+          }
+          if (worst < 0 || truth[u][i] < truth[u][worst]) {
+            worst = i;
+          }
+        }
+      }
+      heldOutBest[u] = best;
+      heldOutWorst[u] = worst;
+      for (int i : rated) {
+        rows.add(userId(u));
+        cols.add(itemId(i));
+        values.add(truth[u][i] + (float) random.nextGaussian() * 0.1F);
+        rates.add(new Object[]{userId(u), itemId(i), values.get(
+            values.size() - 1)});
+      }
+    }
+    float[] ratingValues = new float[values.size()];
+    for (int k = 0; k < ratingValues.length; k++) {
+      ratingValues[k] = values.get(k);
+    }
+    training = RatingMatrix.of(
+        rows.stream().mapToLong(Long::longValue).toArray(),
+        cols.stream().mapToLong(Long::longValue).toArray(), ratingValues);
+  }
+
+  @Test
+  void ranksHeldOutItems() {
+    FactorModel model = AlsTrainer.train(training, RANK, LAMBDA, ITERATIONS,
+        SEED);
+    int correct = 0, compared = 0;
+    for (int u = 0; u < USERS; u++) {
+      int best = heldOutBest[u], worst = heldOutWorst[u];
+      // Пары с почти равными истинными оценками не сравниваем
+      if (best < 0 || truth[u][best] - truth[u][worst] < 0.5F) {
+        continue;
+      }
+      compared++;
+      if (model.score(userId(u), itemId(best))
+          > model.score(userId(u), itemId(worst))) {
+        correct++;
+      }
+    }
+    assertTrue(compared >= USERS / 2, "too few held-out pairs: " + compared);
+    assertTrue(correct >= compared * 0.9,
+        correct + " of " + compared + " held-out pairs ranked correctly");
+  }
+
+  @Test
+  void recommendsUnratedItemsBestFirst() {
+    // Как в рекомендациях: исключаются только избранные книги
+    BookBaseRateRepository repository = mock(BookBaseRateRepository.class);
+    when(repository.findAllUserRates()).thenReturn(rates);
+    CollaborativeFilter filter = new CollaborativeFilter(repository,
+        mock(RecommendationStore.class), RANK, LAMBDA, ITERATIONS);
+    filter.train();
+
+    int hits = 0;
+    for (int u = 0; u < USERS; u++) {
+      List<Long> rated = new ArrayList<>();
+      for (int k = training.rowStart[u]; k < training.rowStart[u + 1]; k++) {
+        rated.add(training.colIds[training.cols[k]]);
+      }
+      // Избранная неоцененная книга (кроме лучшей скрытой)
+      List<Long> wished = new ArrayList<>();
+      for (int i = 0; i < ITEMS && wished.isEmpty(); i++) {
+        if (i != heldOutBest[u] && !rated.contains(itemId(i))) {
+          wished.add(itemId(i));
+        }
+      }
+      long[] top = filter.recommend(userId(u), wished, 5);
+      for (long id : top) {
+        assertFalse(rated.contains(id), "rated book recommended");
+        assertFalse(wished.contains(id), "wished book recommended");
+      }
+      long best = itemId(heldOutBest[u]);
+      if (Arrays.stream(top).anyMatch(id -> id == best)) {
+        hits++;
+      }
+    }
+    // Лучшая скрытая книга - в пятерке рекомендаций большинства
+    assertTrue(hits >= USERS * 0.7, hits + " of " + USERS);
+  }
+
+  @Test
+  void sameSeedGivesIdenticalFactors() {
+    FactorModel first = AlsTrainer.train(training, RANK, LAMBDA, ITERATIONS,
+        SEED);
+    FactorModel second = AlsTrainer.train(training, RANK, LAMBDA, ITERATIONS,
+        SEED);
+    assertArrayEquals(first.getUserFactors(), second.getUserFactors());
+    assertArrayEquals(first.getItemFactors(), second.getItemFactors());
+
+    FactorModel other = AlsTrainer.train(training, RANK, LAMBDA, ITERATIONS,
+        SEED + 1);
+    assertFalse(Arrays.equals(first.getItemFactors(),
+        other.getItemFactors()));
+  }
+
+  // Случайные векторы заложенной структуры
+  private static float[][] randomVectors(Random random, int count) {
+    float[][] res = new float[count][TRUE_RANK];
+    for (float[] vector : res) {
+      for (int p = 0; p < TRUE_RANK; p++) {
+        vector[p] = (float) random.nextGaussian();
+      }
+    }
+    return res;
+  }
+
+  // Id пользователя и книги (не совпадают с номерами)
+  private static long userId(int u) {
+    return 1000L + u * 3L;
+  }
+
+  private static long itemId(int i) {
+    return 5000L + i * 7L;
+  }
+}
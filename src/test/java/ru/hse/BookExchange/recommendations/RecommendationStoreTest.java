@@ -0,0 +1,74 @@
+package ru.hse.BookExchange.recommendations;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Обновление сохраненных рекомендаций при изменении избранного
+ */
+class RecommendationStoreTest {
+
+  private static final Long USER = 7L;
+
+  @Test
+  void updatesStoredList() {
+    RecommendationStore store = new RecommendationStore(10, 60);
+    store.put(USER, store.getVersion(), list(1, 2));
+
+    store.update(USER, old -> list(3));
+    assertArrayEquals(new long[]{3}, store.get(USER));
+  }
+
+  @Test
+  void leavesMarkerWithoutList() {
+    RecommendationStore store = new RecommendationStore(10, 60);
+    long version = store.getVersion();
+
+    store.update(USER, old -> list(3));
+    assertNull(store.get(USER));
+    // Рекомендации, посчитанные до изменения избранного, не сохраняются
+    store.put(USER, version, list(1));
+    assertNull(store.get(USER));
+    store.put(USER, store.getVersion(), list(2));
+    assertArrayEquals(new long[]{2}, store.get(USER));
+  }
+
+  @Test
+  void recomputesWhenEntryChangesDuringUpdate() {
+    RecommendationStore store = new RecommendationStore(10, 60);
+    store.put(USER, store.getVersion(), list(1));
+
+    // Пока считаются новые рекомендации, запись пользователя заменяется
+    List<Long> seen = new ArrayList<>();
+    store.update(USER, old -> {
+      seen.add(old.getIds()[0]);
+      if (seen.size() == 1) {
+        store.put(USER, store.getVersion(), list(2));
+      }
+      return list(old.getIds()[0] * 10);
+    });
+    assertEquals(List.of(1L, 2L), seen);
+    assertArrayEquals(new long[]{20}, store.get(USER));
+  }
+
+  @Test
+  void leavesMarkerWhenEntryKeepsChanging() {
+    RecommendationStore store = new RecommendationStore(10, 60);
+    store.put(USER, store.getVersion(), list(1));
+
+    store.update(USER, old -> {
+      store.put(USER, store.getVersion(), list(2));
+      return list(3);
+    });
+    assertNull(store.get(USER));
+  }
+
+  private static RecommendationList list(long... ids) {
+    return new RecommendationList(ids, new float[ids.length]);
+  }
+}
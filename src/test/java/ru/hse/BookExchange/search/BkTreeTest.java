@@ -0,0 +1,88 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Поиск слов в BK-дереве: совпадение с перебором словаря
+ */
+class BkTreeTest {
+
+  @Test
+  void findMatchesBruteForce() {
+    Random random = new Random(11);
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      words.add(randomWord(random));
+    }
+    // Повторы в словаре не добавляются
+    words.addAll(words.subList(0, 100));
+    BkTree tree = new BkTree(words);
+    Set<String> vocabulary = new LinkedHashSet<>(words);
+    assertEquals(vocabulary.size(), tree.size());
+
+    List<String> queries = new ArrayList<>(words.subList(0, 50));
+    for (int i = 0; i < 150; i++) {
+      queries.add(randomWord(random));
+    }
+    queries.add("");
+    for (String query : queries) {
+      for (int k = 0; k <= 3; k++) {
+        Set<String> expected = new HashSet<>();
+        for (String word : vocabulary) {
+          if (levenshtein(word, query) <= k) {
+            expected.add(word);
+          }
+        }
+        List<String> found = tree.find(query, k);
+        assertEquals(found.size(), new HashSet<>(found).size(), query);
+        assertEquals(expected, new HashSet<>(found), query + ", " + k);
+      }
+    }
+  }
+
+  @Test
+  void emptyTreeFindsNothing() {
+    assertEquals(0, BkTree.EMPTY.size());
+    assertTrue(BkTree.EMPTY.find("word", 3).isEmpty());
+    assertEquals(List.of("a"), new BkTree(List.of("a")).find("b", 1));
+  }
+
+  // Слова из небольшого алфавита: много слов на малом расстоянии
+  private static String randomWord(Random random) {
+    String alphabet = "aeiostnrмарк";
+    StringBuilder word = new StringBuilder();
+    int length = 1 + random.nextInt(8);
+    for (int i = 0; i < length; i++) {
+      word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return word.toString();
+  }
+
+  // Расстояние Левенштейна по полной таблице
+  private static int levenshtein(String s, String t) {
+    int[][] d = new int[s.length() + 1][t.length() + 1];
+    for (int i = 0; i <= s.length(); i++) {
+      d[i][0] = i;
+    }
+    for (int j = 0; j <= t.length(); j++) {
+      d[0][j] = j;
+    }
+    for (int i = 1; i <= s.length(); i++) {
+      for (int j = 1; j <= t.length(); j++) {
+        int cost = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
+        d[i][j] = Math.min(d[i - 1][j - 1] + cost,
+            Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+      }
+    }
+    return d[s.length()][t.length()];
+  }
+}
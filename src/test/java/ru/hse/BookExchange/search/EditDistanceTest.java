@@ -0,0 +1,203 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import ru.hse.BookExchange.search.EditDistance.Pattern;
+
+/**
+ * Сравнение быстрых алгоритмов расстояний с вычислением по полной таблице
+ */
+class EditDistanceTest {
+
+  // Алфавиты случайных слов (маленькие - чтобы чаще совпадали символы)
+  private static final String[] ALPHABETS = {"ab", "abc", "abcdefgh",
+      "абвгдеё", "abcабв", "abcdefghijklmnopqrstuvwxyzабвгдежзийклмнопрстуф"};
+
+  @Test
+  void emptyWords() {
+    assertDistances("", "");
+    assertDistances("", "abc");
+    assertDistances("abc", "");
+    assertDistances("", "книга");
+  }
+
+  @Test
+  void transpositions() {
+    assertDistances("ab", "ba");
+    assertDistances("abcd", "acbd");
+    assertDistances("abcd", "badc");
+    assertDistances("книга", "кинга");
+    assertDistances("tolstoy", "toltsoy");
+    assertDistances("orwell", "orwlel");
+  }
+
+  @Test
+  void cyrillicWords() {
+    assertDistances("толстой", "толстый");
+    assertDistances("война", "воина");
+    assertDistances("мастер", "маргарита");
+    assertDistances("ёжик", "ежик");
+    assertDistances("достоевский", "dostoevsky");
+  }
+
+  @Test
+  void bitParallelBoundary() {
+    Random random = new Random(64);
+    // Слова длиной 63, 64 и 65: битово-параллельный алгоритм и строки таблицы
+    for (int length = 63; length <= 65; length++) {
+      for (int i = 0; i < 200; i++) {
+        String alphabet = ALPHABETS[i % ALPHABETS.length];
+        String s = randomWord(random, alphabet, length);
+        assertDistances(s, s);
+        assertDistances(s, mutate(random, s, alphabet));
+        assertDistances(s, randomWord(random, alphabet, random.nextInt(70)));
+        assertDistances(randomWord(random, alphabet, random.nextInt(70)), s);
+      }
+    }
+    // 64 различных символа - таблица символов шаблона заполнена наполовину
+    StringBuilder distinct = new StringBuilder();
+    for (char c = 'А'; distinct.length() < 64; c++) {
+      distinct.append(c);
+    }
+    String s = distinct.toString();
+    assertDistances(s, new StringBuilder(s).reverse().toString());
+    assertDistances(s, s.substring(1) + 'z');
+    assertDistances(s + 'я', s);
+  }
+
+  @Test
+  void randomWords() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+      String s = randomWord(random, alphabet, random.nextInt(90));
+      String t = random.nextBoolean() ? mutate(random, s, alphabet)
+          : randomWord(random, alphabet, random.nextInt(90));
+      assertDistances(s, t);
+    }
+  }
+
+  @Test
+  void patternIsReusable() {
+    Random random = new Random(7);
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      words.add(randomWord(random, ALPHABETS[i % ALPHABETS.length],
+          random.nextInt(80)));
+    }
+    for (String word : words.subList(0, 50)) {
+      Pattern pattern = new Pattern(word);
+      for (String other : words) {
+        assertEquals(levenshtein(word, other), pattern.distanceTo(other),
+            () -> word + " / " + other);
+      }
+    }
+  }
+
+  // Проверяет оба алгоритма на паре слов
+  private static void assertDistances(String s, String t) {
+    assertEquals(modifiedDamerauLevenshtein(s, t),
+        EditDistance.getModifiedDamerauLevenshteinDistance(s, t),
+        () -> "modified Damerau-Levenshtein: " + s + " / " + t);
+    assertEquals(levenshtein(s, t), EditDistance.getLevenshteinDistance(s, t),
+        () -> "Levenshtein: " + s + " / " + t);
+  }
+
+  // Случайное слово из символов алфавита
+  private static String randomWord(Random random, String alphabet,
+      int length) {
+    StringBuilder res = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      res.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return res.toString();
+  }
+
+  // Слово с несколькими опечатками (замены, вставки, удаления, перестановки)
+  private static String mutate(Random random, String word, String alphabet) {
+    StringBuilder res = new StringBuilder(word);
+    int typos = 1 + random.nextInt(3);
+    for (int k = 0; k < typos; k++) {
+      int pos = res.length() == 0 ? 0 : random.nextInt(res.length());
+      char c = alphabet.charAt(random.nextInt(alphabet.length()));
+      switch (random.nextInt(4)) {
+        case 0:
+          if (res.length() > 0) {
+            res.setCharAt(pos, c);
+          }
+          break;
+        case 1:
+          res.insert(pos, c);
+          break;
+        case 2:
+          if (res.length() > 0) {
+            res.deleteCharAt(pos);
+          }
+          break;
+        default:
+          if (pos + 1 < res.length()) {
+            char tmp = res.charAt(pos);
+            res.setCharAt(pos, res.charAt(pos + 1));
+            res.setCharAt(pos + 1, tmp);
+          }
+      }
+    }
+    return res.toString();
+  }
+
+  // Модифицированное расстояние Дамерау-Левенштейна по полной таблице
+  private static int modifiedDamerauLevenshtein(String s, String t) {
+    int sLen = s.length(), tLen = t.length();
+    int[][] costs = new int[sLen + 1][tLen + 1];
+    for (int i = 0; i <= sLen; ++i) {
+      costs[i][0] = i;
+    }
+    for (int j = 1; j <= tLen; ++j) {
+      costs[0][j] = j;
+    }
+    for (int i = 1; i <= sLen; ++i) {
+      for (int j = 1; j <= tLen; ++j) {
+        if (s.charAt(i - 1) == t.charAt(j - 1)) {
+          costs[i][j] = costs[i - 1][j - 1];
+          if (i - 2 >= 0 && j - 2 >= 0
+              && s.charAt(i - 2) == t.charAt(j - 2)) {
+            costs[i][j]--;
+          }
+        } else {
+          int switchVal = Integer.MAX_VALUE;
+          if (i > 1 && j > 1 && s.charAt(i - 1) == t.charAt(j - 2)
+              && s.charAt(i - 2) == t.charAt(j - 1)) {
+            switchVal = costs[i - 2][j - 2];
+          }
+          costs[i][j] = 1 + Math.min(costs[i - 1][j],
+              Math.min(costs[i][j - 1],
+                  Math.min(costs[i - 1][j - 1], switchVal)));
+        }
+      }
+    }
+    return costs[sLen][tLen];
+  }
+
+  // Расстояние Левенштейна по полной таблице
+  private static int levenshtein(String s, String t) {
+    int[][] costs = new int[s.length() + 1][t.length() + 1];
+    for (int i = 0; i <= s.length(); i++) {
+      costs[i][0] = i;
+    }
+    for (int j = 0; j <= t.length(); j++) {
+      costs[0][j] = j;
+    }
+    for (int i = 1; i <= s.length(); i++) {
+      for (int j = 1; j <= t.length(); j++) {
+        int cost = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
+        costs[i][j] = Math.min(costs[i - 1][j - 1] + cost,
+            Math.min(costs[i - 1][j], costs[i][j - 1]) + 1);
+      }
+    }
+    return costs[s.length()][t.length()];
+  }
+}
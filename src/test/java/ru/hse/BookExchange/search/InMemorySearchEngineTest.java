@@ -0,0 +1,213 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import ru.hse.BookExchange.models.BookBase;
+
+/**
+ * Кандидаты и результаты поиска по индексу: совпадение с перебором всех книг
+ */
+class InMemorySearchEngineTest {
+
+  private static final String[] WORDS = {"война", "мир", "толстой",
+      "мастер", "маргарита", "булгаков", "гарри", "поттер", "роулинг",
+      "солярис", "лем", "пикник", "обочине", "стругацкий", "harry", "potter",
+      "solaris", "lem", "foundation", "asimov", "ведьмак", "сапковский",
+      "witcher", "dune", "herbert", "фонтан", "красная", "шапочка", "her",
+      "кот", "dog", "war", "peace"};
+
+  private static final Analyzer ANALYZER = new Analyzer(
+      new String[]{"stem", "translit"});
+
+  @Test
+  void matchesBruteForce() {
+    Random random = new Random(5);
+    List<BookBase> books = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      books.add(newBookBase(i + 1, randomText(random, 1 + random.nextInt(4)),
+          randomText(random, 1 + random.nextInt(2))));
+    }
+    BookBaseSearchIndex index = new BookBaseSearchIndex(null, ANALYZER);
+    books.forEach(index::add);
+    // Изменение и удаление книг меняют словарь
+    books.set(10, newBookBase(11, "xaxbxcxdxex", "abc"));
+    index.add(books.get(10));
+    index.remove(books.remove(20).getId());
+
+    // Параллельная оценка - с первого кандидата
+    InMemorySearchEngine engine = new InMemorySearchEngine(index, 1, 2);
+    InMemorySearchEngine serialEngine = new InMemorySearchEngine(index,
+        Integer.MAX_VALUE, 1);
+    try {
+      List<String> queries = new ArrayList<>(List.of("abc", "abcde", "гари",
+          "harri поттер", "толстои", "тол", "ли", "ведьмак сапковски"));
+      for (int i = 0; i < 150; i++) {
+        queries.add(randomText(random, 1 + random.nextInt(2)));
+      }
+      for (String text : queries) {
+        for (SearchField field : SearchField.values()) {
+          SearchQuery query = index.createQuery(text);
+          List<Long> expected = bruteForce(books, text, field);
+          assertEquals(new HashSet<>(expected),
+              index.findCandidates(query, field), text + ", " + field);
+
+          List<Long> res = engine.search(text, field, 10, 3);
+          assertEquals(expected.subList(Math.min(3, expected.size()),
+              Math.min(13, expected.size())), res, text + ", " + field);
+          assertEquals(res, serialEngine.search(text, field, 10, 3));
+        }
+      }
+    } finally {
+      engine.shutdown();
+      serialEngine.shutdown();
+    }
+  }
+
+  @Test
+  void dropsDistantSimilarWordsOfLongKeywords() {
+    BookBaseSearchIndex index = new BookBaseSearchIndex(null, ANALYZER);
+    // Буквы ключевого слова идут вразброс: по очкам слово похоже, но далеко
+    // по расстоянию Левенштейна и без общих триграмм
+    index.add(newBookBase(1, "xaxbxcxdxex", "author"));
+    index.add(newBookBase(2, "xaxbxc", "author"));
+    assertTrue(FieldIndex.isSimilar("xaxbxcxdxex", "abcde"));
+    assertTrue(FieldIndex.isSimilar("xaxbxc", "abc"));
+
+    InMemorySearchEngine engine = new InMemorySearchEngine(index,
+        Integer.MAX_VALUE, 1);
+    try {
+      // Короткие ключевые слова сравниваются со всем словарем
+      assertEquals(Set.of(1L, 2L),
+          new HashSet<>(engine.search("abc", SearchField.title, 10, 0)));
+      // Длинные - только с найденными в BK-дереве и по триграммам словами
+      assertTrue(engine.search("abcde", SearchField.title, 10, 0).isEmpty());
+    } finally {
+      engine.shutdown();
+    }
+  }
+
+  /* Все книги, отсортированные по очкам (как до индекса), без книг, в полях
+     которых нет подходящих слов */
+  private static List<Long> bruteForce(List<BookBase> books, String text,
+      SearchField field) {
+    TokenDictionary dictionary = new TokenDictionary(ANALYZER);
+    SearchQuery query = new SearchQuery(SearchScorer.getSearchWords(text),
+        dictionary);
+    SearchQuery.Scorer scorer = query.newScorer();
+    List<long[]> scores = new ArrayList<>();
+    for (BookBase book : books) {
+      String[] title = words(book.getSearchTitle());
+      String[] author = words(book.getSearchAuthor());
+      List<String[]> fields;
+      List<int[]> tokens;
+      switch (field) {
+        case title:
+          fields = List.<String[]>of(title);
+          tokens = List.of(dictionary.getIds(title));
+          break;
+        case author:
+          fields = List.<String[]>of(author);
+          tokens = List.of(dictionary.getIds(author));
+          break;
+        default:
+          fields = List.of(author, title);
+          tokens = List.of(dictionary.getIds(author),
+              dictionary.getIds(title));
+      }
+      if (isCandidate(fields, query.getSearchWords())) {
+        scores.add(new long[]{scorer.getScore(tokens), book.getId()});
+      }
+    }
+    return scores.stream()
+        .sorted(Comparator.<long[]>comparingLong(s -> -s[0])
+            .thenComparingLong(s -> s[1]))
+        .map(s -> s[1]).collect(Collectors.toList());
+  }
+
+  // Есть ли в полях книги слово, подходящее к одному из ключевых
+  private static boolean isCandidate(List<String[]> fields,
+      String[] searchWords) {
+    for (String searchWord : searchWords) {
+      if (searchWord.isEmpty()) {
+        continue;
+      }
+      Set<String> searchTerms = Set.of(ANALYZER.analyze(searchWord));
+      for (String[] words : fields) {
+        for (String word : words) {
+          if (Arrays.stream(ANALYZER.analyze(word))
+              .anyMatch(searchTerms::contains)) {
+            return true;
+          }
+          if (SearchScorer.compareStrings(word, searchWord)
+              >= searchWord.length() && (searchWord.length() < 5
+              || EditDistance.getLevenshteinDistance(word, searchWord)
+              <= maxTypos(searchWord)
+              || hasCommonTrigrams(word, searchWord))) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static int maxTypos(String searchWord) {
+    return searchWord.length() <= 5 ? 1 : searchWord.length() <= 9 ? 2 : 3;
+  }
+
+  // Не меньше 30% триграмм ключевого слова есть в слове
+  private static boolean hasCommonTrigrams(String word, String searchWord) {
+    Set<String> searchTrigrams = TrigramIndex.getTrigrams(searchWord);
+    Set<String> common = new HashSet<>(TrigramIndex.getTrigrams(word));
+    common.retainAll(searchTrigrams);
+    return common.size() >= Math.max(1, (int) (searchTrigrams.size() * 0.3));
+  }
+
+  private static String[] words(String normalized) {
+    return Arrays.stream(TextNormalizer.split(normalized)).distinct()
+        .toArray(String[]::new);
+  }
+
+  // Слова из списка, часть - с опечатками
+  private static String randomText(Random random, int wordCount) {
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < wordCount; i++) {
+      StringBuilder word = new StringBuilder(
+          WORDS[random.nextInt(WORDS.length)]);
+      int typos = random.nextInt(3);
+      for (int k = 0; k < typos && word.length() > 1; k++) {
+        int p = random.nextInt(word.length());
+        switch (random.nextInt(3)) {
+          case 0:
+            word.deleteCharAt(p);
+            break;
+          case 1:
+            word.setCharAt(p, word.charAt(random.nextInt(word.length())));
+            break;
+          default:
+            word.insert(p, word.charAt(p));
+        }
+      }
+      words.add(word.toString());
+    }
+    return String.join(" ", words);
+  }
+
+  private static BookBase newBookBase(long id, String title, String author) {
+    BookBase bookBase = new BookBase();
+    bookBase.setId(id);
+    bookBase.setTitle(title);
+    bookBase.setAuthor(author);
+    return bookBase;
+  }
+}
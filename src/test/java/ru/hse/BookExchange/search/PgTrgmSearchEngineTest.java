@@ -0,0 +1,101 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+
+/**
+ * Поиск книг средствами PostgreSQL (pg_trgm) на тестовых данных
+ * DataBaseLoader
+ *
+ * <p>
+ * Нужен PostgreSQL с расширением pg_trgm, тест запускается только с ним:
+ * mvn test -Dtest=PgTrgmSearchEngineTest
+ * -Dtest.postgres.url=jdbc:postgresql://localhost/books_test
+ * -Dtest.postgres.username=... -Dtest.postgres.password=...
+ * (схема бд пересоздается).
+ * </p>
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.NONE,
+    properties = "search.engine=pg_trgm")
+@EnabledIfSystemProperty(named = "test.postgres.url", matches = ".+")
+class PgTrgmSearchEngineTest {
+
+  @Autowired
+  private SearchEngine searchEngine;
+  @Autowired
+  private BookBaseRepository bookBaseRepository;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void postgres(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url",
+        () -> System.getProperty("test.postgres.url"));
+    registry.add("spring.datasource.username",
+        () -> System.getProperty("test.postgres.username", "postgres"));
+    registry.add("spring.datasource.password",
+        () -> System.getProperty("test.postgres.password", ""));
+  }
+
+  @Test
+  void usesPgTrgmEngine() {
+    assertTrue(searchEngine instanceof PgTrgmSearchEngine);
+  }
+
+  @Test
+  void createsTrigramIndexes() {
+    List<String> indexes = jdbcTemplate.queryForList(
+        "SELECT indexname FROM pg_indexes WHERE tablename = 'book_base'",
+        String.class);
+    assertTrue(indexes.contains("book_base_search_title_trgm"),
+        indexes::toString);
+    assertTrue(indexes.contains("book_base_search_author_trgm"),
+        indexes::toString);
+  }
+
+  @Test
+  void findsBooksWithTypos() {
+    assertEquals(findId("Fahrenheit 451"), searchEngine
+        .search("farenheit", SearchField.title, 10, 0).get(0));
+    assertEquals(findId("1984"), searchEngine
+        .search("orwel", SearchField.author, 10, 0).get(0));
+    assertEquals(findId("The Last Wish"), searchEngine
+        .search("sapkovski last wish", SearchField.text, 10, 0).get(0));
+  }
+
+  @Test
+  void pagesFollowFullResult() {
+    List<Long> all = searchEngine.search("template title", SearchField.title,
+        100, 0);
+    assertTrue(all.size() > 3, all::toString);
+    assertEquals(all.subList(1, 3), searchEngine
+        .search("template title", SearchField.title, 2, 1));
+  }
+
+  @Test
+  void emptyQueryFindsNothing() {
+    assertEquals(List.of(), searchEngine.search("  ", SearchField.text, 10, 0));
+    assertEquals(List.of(), searchEngine.search("orwell", SearchField.text, 0,
+        0));
+  }
+
+  // Id книги по названию
+  private Long findId(String title) {
+    return bookBaseRepository.findAllBookBases().stream()
+        .filter(b -> b.getTitle().equals(title))
+        .map(BookBase::getId)
+        .findFirst().orElseThrow();
+  }
+}
@@ -0,0 +1,99 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import ru.hse.BookExchange.models.BookBase;
+
+/**
+ * Подсказки по префиксу: совпадение с перебором всех книг
+ */
+class PrefixTrieTest {
+
+  // Сколько лучших книг хранится в узле
+  private static final int TOP_SIZE = 3;
+  // Общее начало заголовков длиннее MAX_KEY_LENGTH
+  private static final String LONG_TITLE = "abcdefghij klmnopqrst uvwxyzabcd"
+      + " efgh ";
+
+  @Test
+  void longPrefixFindsBooksOutsideNodeTop() {
+    assertTrue(LONG_TITLE.length() > PrefixTrie.MAX_KEY_LENGTH);
+    List<Suggestion> books = new ArrayList<>();
+    long id = 1;
+    // Лучшие книги узла обрезанного префикса - alpha (меньшие id)
+    for (String word : new String[]{"alpha", "beta"}) {
+      for (int i = 0; i < 10; i++) {
+        books.add(newSuggestion(id++, LONG_TITLE + word + " " + i, "Author"));
+      }
+    }
+    PrefixTrie trie = newTrie(books);
+
+    String prefix = TextNormalizer.normalize(LONG_TITLE + "beta");
+    List<Suggestion> res = trie.suggest(prefix, TOP_SIZE);
+    assertEquals(TOP_SIZE, res.size());
+    assertEquals(bruteForce(books, prefix, TOP_SIZE), ids(res));
+  }
+
+  @Test
+  void matchesBruteForce() {
+    List<Suggestion> books = new ArrayList<>();
+    String[] words = {"war", "peace", "warlock", "master", "margarita",
+        "potter", "harry", "pottery"};
+    for (int i = 0; i < 60; i++) {
+      String title = words[i % words.length] + " "
+          + words[(i * 3 + 1) % words.length];
+      if (i % 4 == 0) {
+        title = LONG_TITLE + title;
+      }
+      books.add(newSuggestion(i + 1, title, words[(i * 5) % words.length]));
+    }
+    PrefixTrie trie = newTrie(books);
+    // Изменение и удаление книг пересчитывают узлы
+    books.set(7, newSuggestion(8, LONG_TITLE + "peace war", "harry"));
+    trie.put(books.get(7));
+    trie.remove(books.remove(12).getId());
+
+    for (String text : new String[]{"w", "war", "warl", "pot", "potter",
+        "harry p", "x", LONG_TITLE, LONG_TITLE + "war",
+        LONG_TITLE + "peace w", LONG_TITLE + "potter harry"}) {
+      String prefix = TextNormalizer.normalize(text);
+      for (int limit = 1; limit <= TOP_SIZE; limit++) {
+        assertEquals(bruteForce(books, prefix, limit),
+            ids(trie.suggest(prefix, limit)), prefix + ", " + limit);
+      }
+    }
+  }
+
+  private static PrefixTrie newTrie(List<Suggestion> books) {
+    PrefixTrie trie = new PrefixTrie(TOP_SIZE);
+    books.forEach(trie::put);
+    return trie;
+  }
+
+  // Лучшие подходящие книги перебором
+  private static List<Long> bruteForce(List<Suggestion> books, String prefix,
+      int limit) {
+    return books.stream().filter(book -> book.matches(prefix))
+        .sorted(Suggestion.ORDER).limit(limit).map(Suggestion::getId)
+        .collect(Collectors.toList());
+  }
+
+  private static List<Long> ids(List<Suggestion> suggestions) {
+    return suggestions.stream().map(Suggestion::getId)
+        .collect(Collectors.toList());
+  }
+
+  private static Suggestion newSuggestion(long id, String title,
+      String author) {
+    BookBase bookBase = new BookBase();
+    bookBase.setId(id);
+    bookBase.setTitle(title);
+    bookBase.setAuthor(author);
+    return new Suggestion(bookBase);
+  }
+}
@@ -0,0 +1,97 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Очки слов словаря в оценке запроса
+ */
+class SearchQueryTest {
+
+  @Test
+  void memoizedScoresMatchFreshScores() {
+    TokenDictionary dictionary = new TokenDictionary(
+        new Analyzer(new String[]{"stem", "translit"}));
+    Random random = new Random(3);
+    // Слов больше начального размера таблицы - она несколько раз растет
+    int[] tokens = dictionary.getIds(randomWords(random, 5000));
+    SearchQuery query = new SearchQuery(
+        SearchScorer.getSearchWords("толстой война мир tolstoy"), dictionary);
+
+    SearchQuery.Scorer scorer = query.newScorer();
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i + 3 <= tokens.length; i += 3) {
+        List<int[]> fields = List.of(new int[]{tokens[i], tokens[i + 1]},
+            new int[]{tokens[i + 2]});
+        assertEquals(query.newScorer().getScore(fields),
+            scorer.getScore(fields));
+      }
+    }
+  }
+
+  @Test
+  void keepsOriginalWordWithTransliteration() {
+    Analyzer analyzer = new Analyzer(new String[]{"stem", "translit"});
+    assertTrue(List.of(analyzer.analyze("hall")).contains("hall"));
+    assertTrue(List.of(analyzer.analyze("гарри")).contains("гарри"));
+    assertArrayEquals(analyzer.analyze("hall"), analyzer.analyze("hall"));
+  }
+
+  @Test
+  void transliteratedWordScoresBelowExactMatch() {
+    TokenDictionary dictionary = new TokenDictionary(
+        new Analyzer(new String[]{"stem", "translit"}));
+    // Та же запись другим алфавитом: ниже точного совпадения, но как
+    // похожее слово (на одно очко меньше длины ключевого слова)
+    assertEquals(6, score(dictionary, "солярис", "solaris"));
+    assertTrue(score(dictionary, "solaris", "solaris") > 6);
+    assertEquals(4, score(dictionary, "гарри", "harry"));
+    assertTrue(score(dictionary, "гарри", "harry")
+        > score(dictionary, "мастер", "harry"));
+    // Та же основа - как точное совпадение
+    assertTrue(score(dictionary, "поттера", "поттер") >= 6);
+  }
+
+  @Test
+  void foldedCollisionsScoreBelowSimilarWords() {
+    TokenDictionary dictionary = new TokenDictionary(
+        new Analyzer(new String[]{"stem", "translit"}));
+    // ph -> f, c -> k, "i" перед гласной, x -> ks: разные слова с одной
+    // записью не считаются похожими (меньше длины ключевого слова)
+    for (String[] pair : new String[][]{{"phil", "fil"}, {"cyan", "kan"},
+        {"wax", "vaks"}}) {
+      assertEquals(pair[0].length() - 1, score(dictionary, pair[1], pair[0]),
+          pair[1] + " for " + pair[0]);
+    }
+    assertTrue(score(dictionary, "hall", "hall")
+        > score(dictionary, "gall", "hall"));
+  }
+
+  // Очки слова словаря для ключевого слова
+  private static int score(TokenDictionary dictionary, String word,
+      String searchWord) {
+    int token = dictionary.getIds(new String[]{word})[0];
+    return new SearchQuery(new String[]{searchWord}, dictionary).newScorer()
+        .getScore(List.of(new int[]{token}));
+  }
+
+  // Случайные слова из латинских и русских букв
+  private static String[] randomWords(Random random, int count) {
+    String alphabet = "абвгдеиклмнопрстуйвaeiostlnrmw";
+    String[] res = new String[count];
+    for (int i = 0; i < count; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 2 + random.nextInt(8);
+      for (int j = 0; j < length; j++) {
+        word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      res[i] = word.toString();
+    }
+    return res;
+  }
+}
@@ -0,0 +1,121 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.hse.BookExchange.search.BookBaseSearchIndex.Entry;
+
+/**
+ * Параллельная оценка кандидатов: совпадение с последовательной и замер
+ * времени
+ */
+class SearchRankerTest {
+
+  // Слова названий и авторов синтетических книг
+  private static final String[] WORDS = {"война", "мир", "толстой", "лев",
+      "мастер", "маргарита", "булгаков", "harry", "potter", "rowling",
+      "orwell", "solaris", "lem", "witcher", "sapkowski", "преступление",
+      "наказание", "достоевский", "идиот", "братья", "карамазовы", "dune",
+      "herbert", "foundation", "asimov", "robot", "station", "eleven"};
+
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  static void createPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void shutdownPool() {
+    pool.shutdown();
+  }
+
+  @Test
+  void parallelRankingMatchesSequential() {
+    TokenDictionary dictionary = newDictionary();
+    Random random = new Random(1);
+    for (int size : new int[]{0, 1, 1023, 1024, 1025, 5000, 20000}) {
+      Entry[] candidates = newCandidates(dictionary, random, size);
+      for (String text : new String[]{"война и мир", "potter", "булгакв",
+          "достоевский идиот братья"}) {
+        SearchQuery query = new SearchQuery(SearchScorer.getSearchWords(text),
+            dictionary);
+        for (SearchField field : SearchField.values()) {
+          for (int k : new int[]{1, 10, 100, size + 1}) {
+            assertArrayEquals(
+                SearchRanker.rank(candidates, field, query, k),
+                SearchRanker.rankParallel(pool, candidates, field, query, k),
+                () -> size + " candidates, " + text + ", " + field);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Замер последовательной и параллельной оценки (запуск:
+   * mvn test -Dtest=SearchRankerTest -Dsearch.benchmark=true)
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "search.benchmark", matches = "true")
+  void benchmark() {
+    TokenDictionary dictionary = newDictionary();
+    Random random = new Random(2);
+    for (int size : new int[]{1000, 2000, 10000, 100000}) {
+      Entry[] candidates = newCandidates(dictionary, random, size);
+      String[] words = SearchScorer.getSearchWords("мастер и маргарита");
+      long sequential = measure(() -> SearchRanker.rank(candidates,
+          SearchField.text, new SearchQuery(words, dictionary), 50));
+      long parallel = measure(() -> SearchRanker.rankParallel(pool,
+          candidates, SearchField.text, new SearchQuery(words, dictionary),
+          50));
+      System.out.printf("%d candidates: sequential %d us, parallel %d us"
+              + " (%d threads)%n", size, sequential / 1000, parallel / 1000,
+          pool.getParallelism());
+    }
+  }
+
+  // Медиана времени выполнения (нс) после разогрева
+  private static long measure(Runnable run) {
+    for (int i = 0; i < 20; i++) {
+      run.run();
+    }
+    long[] times = new long[31];
+    for (int i = 0; i < times.length; i++) {
+      long start = System.nanoTime();
+      run.run();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[times.length / 2];
+  }
+
+  private static TokenDictionary newDictionary() {
+    return new TokenDictionary(new Analyzer(new String[]{"stem", "translit"}));
+  }
+
+  // Синтетические книги из случайных слов (одинаковые очки у многих книг)
+  private static Entry[] newCandidates(TokenDictionary dictionary,
+      Random random, int size) {
+    Entry[] res = new Entry[size];
+    for (int i = 0; i < size; i++) {
+      res[i] = new Entry((long) i, dictionary.getIds(randomWords(random, 3)),
+          dictionary.getIds(randomWords(random, 2)));
+    }
+    return res;
+  }
+
+  private static String[] randomWords(Random random, int maxCount) {
+    String[] res = new String[1 + random.nextInt(maxCount)];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = WORDS[random.nextInt(WORDS.length)];
+    }
+    return res;
+  }
+}
@@ -0,0 +1,100 @@
+package ru.hse.BookExchange.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Отбор слов по общим триграммам: совпадение с перебором словаря
+ */
+class TrigramIndexTest {
+
+  @Test
+  void findCandidatesMatchesBruteForce() {
+    Random random = new Random(7);
+    Set<String> vocabulary = new LinkedHashSet<>();
+    TrigramIndex index = new TrigramIndex();
+    for (int i = 0; i < 1500; i++) {
+      String word = randomWord(random);
+      vocabulary.add(word);
+      index.add(word);
+    }
+    // Удаленные слова больше не находятся, остальные слова с общими
+    // триграммами остаются
+    List<String> removed = new ArrayList<>(vocabulary).subList(0, 300);
+    for (String word : new ArrayList<>(removed)) {
+      vocabulary.remove(word);
+      index.remove(word);
+    }
+    index.remove("notindexed");
+
+    List<String> queries = new ArrayList<>(removed.subList(0, 50));
+    queries.addAll(new ArrayList<>(vocabulary).subList(0, 50));
+    for (int i = 0; i < 200; i++) {
+      queries.add(randomWord(random));
+    }
+    queries.add("");
+    for (String query : queries) {
+      List<String> found = index.findCandidates(query);
+      assertEquals(found.size(), new HashSet<>(found).size(), query);
+      assertEquals(bruteForce(vocabulary, query), new HashSet<>(found),
+          query);
+    }
+
+    index.clear();
+    assertTrue(index.findCandidates(queries.get(0)).isEmpty());
+  }
+
+  @Test
+  void shortWordsHaveTrigrams() {
+    TrigramIndex index = new TrigramIndex();
+    index.add("a");
+    index.add("ab");
+    // "  a" - общая триграмма начала слова
+    assertEquals(Set.of("a", "ab"), new HashSet<>(index.findCandidates("a")));
+    assertEquals(Set.of("a", "ab"), new HashSet<>(index.findCandidates("ax")));
+  }
+
+  // Слова, у которых не меньше 30% триграмм ключевого слова
+  private static Set<String> bruteForce(Set<String> vocabulary,
+      String query) {
+    Set<String> queryTrigrams = trigrams(query);
+    int minOverlap = Math.max(1, (int) (queryTrigrams.size() * 0.3));
+    Set<String> res = new HashSet<>();
+    for (String word : vocabulary) {
+      Set<String> common = trigrams(word);
+      common.retainAll(queryTrigrams);
+      if (common.size() >= minOverlap) {
+        res.add(word);
+      }
+    }
+    return res;
+  }
+
+  private static Set<String> trigrams(String word) {
+    String padded = "  " + word + " ";
+    Set<String> res = new HashSet<>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      res.add(padded.substring(i, i + 3));
+    }
+    return res;
+  }
+
+  // Слова из небольшого алфавита: много общих триграмм
+  private static String randomWord(Random random) {
+    String alphabet = "aeiostnrмарк";
+    StringBuilder word = new StringBuilder();
+    int length = 1 + random.nextInt(10);
+    for (int i = 0; i < length; i++) {
+      word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return word.toString();
+  }
+}
@@ -0,0 +1,288 @@
+package ru.hse.BookExchange.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.hse.BookExchange.controllers.AuthenticationController;
+import ru.hse.BookExchange.controllers.abstractions.PageCursor;
+import ru.hse.BookExchange.exceptions.EntityNotFoundException;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.models.BookBase.Language;
+import ru.hse.BookExchange.models.BookBaseRequest;
+import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.User.Role;
+import ru.hse.BookExchange.models.projections.BookBaseView;
+import ru.hse.BookExchange.recommendations.RecommendationEngine;
+import ru.hse.BookExchange.recommendations.RecommendationStore;
+
+/**
+ * Страницы списка книг из бд: совпадение с сортировкой всех книг в памяти
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@Import(BookBaseService.class)
+class BookBasePagingTest {
+
+  // Книг в каталоге (кратно LIMIT - последняя страница заполнена)
+  private static final int COUNT = 35;
+  // Размер страницы
+  private static final int LIMIT = 7;
+  // Байесовские оценки книг: повторы и значения, не точные во float
+  private static final float[] SCORES = {0.0F, 3.6875F, 4.1F, 2.2F,
+      3.6875F, 4.1F, 0.0F};
+
+  @MockBean
+  private RecommendationEngine recommendationEngine;
+  @MockBean
+  private RecommendationStore recommendationStore;
+  @MockBean
+  private AuthenticationController auth;
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private BookBaseService bookBaseService;
+
+  private final List<Book> books = new ArrayList<>();
+
+  @BeforeEach
+  void createData() {
+    User user = entityManager.persist(new User(Role.User, "user", "",
+        "User", null));
+    when(auth.isUser(any())).thenReturn(user);
+
+    for (int i = 0; i < COUNT; i++) {
+      BookBase bookBase = new BookBase("Author", Language.RU, "Title " + i,
+          1, 2000, new ArrayList<>());
+      // Книги, добавленные в одну секунду, различаются только id
+      bookBase.setCreationDate(new Date(1_600_000_000_000L
+          + (i * 7 % 5) * 1000L));
+      entityManager.persist(bookBase);
+      books.add(new Book(bookBase.getId(), bookBase.getCreationDate(),
+          SCORES[i % SCORES.length]));
+    }
+    // Заявки на добавление книг в список не попадают
+    entityManager.persist(new BookBaseRequest(new BookBase("Requested",
+        Language.RU, "Request", 1, 1, new ArrayList<>()), user));
+    entityManager.flush();
+    for (Book book : books) {
+      entityManager.getEntityManager().createNativeQuery(
+          "update book_base set rating_score = ?1 where id = ?2")
+          .setParameter(1, book.score).setParameter(2, book.id)
+          .executeUpdate();
+    }
+    entityManager.clear();
+  }
+
+  @AfterEach
+  void resetRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void offsetPagesMatchSortedCatalog() {
+    for (String sortBy : new String[]{"none", "date", "rate"}) {
+      for (boolean ascending : new boolean[]{true, false}) {
+        List<Long> expected = getOrder(sortBy, ascending);
+        for (int skip = 0; skip <= COUNT + 1; skip += 3) {
+          assertEquals(
+              expected.subList(Math.min(skip, COUNT),
+                  Math.min(skip + LIMIT, COUNT)),
+              ids(all(skip, LIMIT, sortBy, ascending, null, false)),
+              sortBy + ", " + ascending + ", " + skip);
+        }
+        List<BookBaseView> catalog = all(0, COUNT + 10, sortBy, ascending,
+            null, false);
+        assertEquals(expected, ids(catalog));
+        for (BookBaseView view : catalog) {
+          assertEquals(getBook(view.getId()).score, view.getRatingScore());
+        }
+        assertTrue(all(0, 0, sortBy, ascending, null, false).isEmpty());
+      }
+    }
+    // Устаревший флаг latest - как сортировка по дате
+    assertEquals(getOrder("date", true).subList(LIMIT, 2 * LIMIT),
+        ids(all(LIMIT, LIMIT, "none", true, null, true)));
+    assertThrows(IllegalArgumentException.class,
+        () -> all(-1, LIMIT, "none", true, null, false));
+    assertThrows(IllegalArgumentException.class,
+        () -> all(0, LIMIT, "rating", true, null, false));
+  }
+
+  @Test
+  void cursorPagesMatchSortedCatalog() {
+    for (String sortBy : new String[]{"date", "rate"}) {
+      for (boolean ascending : new boolean[]{true, false}) {
+        // Последняя страница заполнена и не заполнена
+        for (int limit : new int[]{LIMIT, LIMIT + 1}) {
+          assertEquals(getOrder(sortBy, ascending), walk(after ->
+                  all(0, limit, sortBy, ascending, after, false), limit),
+              sortBy + ", " + ascending + ", " + limit);
+        }
+      }
+    }
+    // Без курсора заголовок не пишется
+    setResponse();
+    all(0, LIMIT, "rate", true, null, false);
+    assertNull(getResponse().getHeader(PageCursor.HEADER));
+  }
+
+  @Test
+  void rateCursorKeepsExactScore() {
+    List<Long> expected = getOrder("rate", true);
+    for (int i = 0; i < COUNT - 1; i++) {
+      Book last = getBook(expected.get(i));
+      // Курсор после книги с оценкой, не точной в double
+      String after = new PageCursor(Float.floatToIntBits(last.score),
+          last.id).encode();
+      assertEquals(expected.subList(i + 1, Math.min(i + 1 + LIMIT, COUNT)),
+          ids(all(0, LIMIT, "rate", true, after, false)), "after " + i);
+    }
+
+    setResponse();
+    List<BookBaseView> page = all(0, LIMIT, "rate", true, "", false);
+    BookBaseView last = page.get(LIMIT - 1);
+    PageCursor cursor = PageCursor.decode(
+        getResponse().getHeader(PageCursor.HEADER));
+    assertEquals(Float.floatToIntBits(last.getRatingScore()),
+        cursor.getKey());
+    assertEquals(last.getId(), cursor.getId());
+  }
+
+  @Test
+  void rejectsWrongCursorArguments() {
+    String after = new PageCursor(0, 0).encode();
+    assertThrows(IllegalArgumentException.class,
+        () -> all(LIMIT, LIMIT, "date", true, after, false));
+    assertThrows(IllegalArgumentException.class,
+        () -> all(0, LIMIT, "none", true, after, false));
+    assertThrows(IllegalArgumentException.class,
+        () -> all(0, LIMIT, "date", true, "not a cursor", false));
+    assertThrows(IllegalArgumentException.class,
+        () -> all(0, LIMIT, "date", true, "AAAA", false));
+  }
+
+  @Test
+  void idsLookupKeepsOrderAndReportsMissingIds() {
+    List<Long> ids = new ArrayList<>(getOrder("none", false));
+    ids.add(ids.get(0));
+    // ids важнее сортировки и страницы
+    assertEquals(ids, ids(bookBaseService.all(0, 1, "rate", true, ids, null,
+        false, false, null)));
+
+    long missing = ids.get(0) + 1000;
+    EntityNotFoundException ex = assertThrows(EntityNotFoundException.class,
+        () -> bookBaseService.all(0, 100, "none", true,
+            List.of(missing, ids.get(1)), null, false, false, null));
+    assertEquals("Could not find bookBase with ids = [" + missing + "]",
+        ex.getMessage());
+  }
+
+  /* Листает список по курсорам из заголовка ответа, пока страницы
+     заполнены: курсор есть только у заполненной страницы */
+  private List<Long> walk(Function<String, List<BookBaseView>> page,
+      int limit) {
+    List<Long> res = new ArrayList<>();
+    String after = "";
+    while (after != null) {
+      setResponse();
+      List<Long> ids = ids(page.apply(after));
+      res.addAll(ids);
+      after = getResponse().getHeader(PageCursor.HEADER);
+      assertEquals(after != null, ids.size() == limit, res.toString());
+    }
+    return res;
+  }
+
+  private static void setResponse() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(
+        new MockHttpServletRequest(), new MockHttpServletResponse()));
+  }
+
+  private static MockHttpServletResponse getResponse() {
+    return (MockHttpServletResponse) ((ServletRequestAttributes)
+        RequestContextHolder.getRequestAttributes()).getResponse();
+  }
+
+  private List<BookBaseView> all(int skip, int limit, String sortBy,
+      boolean ascending, String after, boolean latest) {
+    return bookBaseService.all(skip, limit, sortBy, ascending, null, after,
+        latest, false, null);
+  }
+
+  // Порядок всех книг каталога для сортировки
+  private List<Long> getOrder(String sortBy, boolean ascending) {
+    Comparator<Book> order;
+    switch (sortBy) {
+      case "date":
+        // ascending - сначала новые
+        order = Comparator.<Book, Date>comparing(book -> book.date)
+            .thenComparing(book -> book.id);
+        if (ascending) {
+          order = order.reversed();
+        }
+        break;
+      case "rate":
+        // Всегда сначала наибольшая оценка
+        order = Comparator.<Book>comparingDouble(book -> book.score)
+            .thenComparing(book -> book.id).reversed();
+        break;
+      default:
+        order = Comparator.comparing(book -> book.id);
+        if (!ascending) {
+          order = order.reversed();
+        }
+    }
+    return books.stream().sorted(order).map(book -> book.id)
+        .collect(Collectors.toList());
+  }
+
+  private Book getBook(Long id) {
+    return books.stream().filter(book -> book.id.equals(id)).findFirst()
+        .orElseThrow();
+  }
+
+  private static List<Long> ids(List<BookBaseView> views) {
+    return views.stream().map(BookBaseView::getId)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Ключи сортировки добавленной книги
+   */
+  private static final class Book {
+
+    private final Long id;
+    private final Date date;
+    private final float score;
+
+    Book(Long id, Date date, float score) {
+      this.id = id;
+      this.date = date;
+      this.score = score;
+    }
+  }
+}
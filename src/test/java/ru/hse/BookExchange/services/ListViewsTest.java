@@ -0,0 +1,233 @@
+package ru.hse.BookExchange.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import ru.hse.BookExchange.controllers.AuthenticationController;
+import ru.hse.BookExchange.models.Avatar;
+import ru.hse.BookExchange.models.Book;
+import ru.hse.BookExchange.models.Book.PublicityStatus;
+import ru.hse.BookExchange.models.BookBase;
+import ru.hse.BookExchange.models.BookBase.Language;
+import ru.hse.BookExchange.models.BookBasePhoto;
+import ru.hse.BookExchange.models.BookBaseRequest;
+import ru.hse.BookExchange.models.BookExchangeRequest;
+import ru.hse.BookExchange.models.Complaint;
+import ru.hse.BookExchange.models.Genre;
+import ru.hse.BookExchange.models.Town;
+import ru.hse.BookExchange.models.User;
+import ru.hse.BookExchange.models.User.Role;
+import ru.hse.BookExchange.recommendations.RecommendationEngine;
+import ru.hse.BookExchange.recommendations.RecommendationStore;
+import ru.hse.BookExchange.repositories.BookBaseRepository;
+import ru.hse.BookExchange.repositories.DatedEntityRepository;
+import ru.hse.BookExchange.repositories.UserRepository;
+
+/**
+ * Списки пользователей и книг из проекций: тот же JSON, что и у сущностей
+ * (с теми же правилами скрытия приватных книг)
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureJson
+@Import({BookBaseService.class, UserService.class})
+class ListViewsTest {
+
+  // Больше, чем id в одном запросе (IN)
+  private static final int MANY = DatedEntityRepository.ID_CHUNK_SIZE + 50;
+
+  @MockBean
+  private RecommendationEngine recommendationEngine;
+  @MockBean
+  private RecommendationStore recommendationStore;
+  @MockBean
+  private AuthenticationController auth;
+
+  @Autowired
+  private TestEntityManager entityManager;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private BookBaseService bookBaseService;
+  @Autowired
+  private UserService userService;
+  @Autowired
+  private BookBaseRepository bookBaseRepository;
+  @Autowired
+  private UserRepository userRepository;
+
+  private Long adminId, ownerId, otherId;
+  private final List<Long> userIds = new ArrayList<>();
+  private final List<Long> bookBaseIds = new ArrayList<>();
+
+  @BeforeEach
+  void createData() {
+    Town town = entityManager.persist(new Town("Moscow"));
+    User admin = persist(new User(Role.Moderator, "admin", "", "Admin",
+        town));
+    User owner = persist(new User(Role.User, "owner", "", "Owner", town));
+    User other = persist(new User(Role.User, "other", "", "Other", town));
+    // Пользователь без города и связанных записей
+    persist(new User(Role.User, "empty", "", null, null));
+
+    // Книга с жанрами и добавившими в избранное больше ID_CHUNK_SIZE
+    BookBase popular = persist(new BookBase("Author", Language.ENG,
+        "Popular", 100, 2000, new ArrayList<>()));
+    for (int i = 0; i < MANY; i++) {
+      Genre genre = new Genre("Genre " + i);
+      genre.addBookBase(popular);
+      entityManager.persist(genre);
+      User wisher = persist(new User(Role.User, "wisher" + i, "", "Wisher",
+          town));
+      wisher.getWishList().add(popular);
+    }
+
+    // Книга с обложкой, публичной и приватной книгами для передачи
+    Genre genre = entityManager.persist(new Genre("Fantasy"));
+    BookBase covered = persist(new BookBase("Tolkien", Language.RU,
+        "Covered", 423, 1954, List.of(genre), "Description"));
+    BookBasePhoto photo = entityManager.persist(
+        new BookBasePhoto(new byte[]{1}, admin, covered));
+    covered.setPhoto(photo);
+    Book publicBook = entityManager.persist(new Book(null, owner, covered,
+        town));
+    Book privateBook = new Book(null, owner, covered, town);
+    privateBook.setPublicityStatus(PublicityStatus.Private);
+    entityManager.persist(privateBook);
+    owner.getWishList().add(covered);
+    other.getWishList().add(covered);
+    other.getWishList().add(popular);
+
+    // Связанные записи пользователя
+    entityManager.persist(new Avatar(new byte[]{1}, owner));
+    entityManager.persist(new BookBaseRequest(new BookBase("Requested",
+        Language.RU, "Request", 1, 1, new ArrayList<>()), owner));
+    entityManager.persist(new Complaint(owner, "Complaint", covered));
+    entityManager.persist(new BookExchangeRequest(other, owner, publicBook,
+        null));
+    entityManager.persist(new BookExchangeRequest(owner, other, privateBook,
+        null));
+
+    // Книга без связанных записей и книги сверх ID_CHUNK_SIZE
+    persist(new BookBase("Nobody", Language.RU, "Empty", 1, 1,
+        new ArrayList<>()));
+    for (int i = 0; i < MANY; i++) {
+      BookBase filler = persist(new BookBase("Filler", Language.ENG,
+          "Filler " + i, 10, 2020, new ArrayList<>()));
+      if (i % 100 == 0) {
+        owner.getWishList().add(filler);
+        entityManager.persist(new Book(null, other, filler, town));
+      }
+    }
+
+    adminId = admin.getId();
+    ownerId = owner.getId();
+    otherId = other.getId();
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  void userViewsMatchEntities() throws JsonProcessingException {
+    assertTrue(userIds.size() > DatedEntityRepository.ID_CHUNK_SIZE);
+    for (Long requesterId : List.of(adminId, ownerId, otherId)) {
+      List<Map<String, Object>> views = toFields(userService.getViews(userIds,
+          userRepository.getOne(requesterId)));
+      entityManager.clear();
+      assertEquals(toFields(getUsers(userIds, requesterId)), views);
+      entityManager.clear();
+    }
+  }
+
+  @Test
+  void bookBaseViewsMatchEntities() throws JsonProcessingException {
+    assertTrue(bookBaseIds.size() > DatedEntityRepository.ID_CHUNK_SIZE);
+    for (Long requesterId : List.of(adminId, ownerId, otherId)) {
+      List<Map<String, Object>> views = toFields(bookBaseService.getViews(
+          bookBaseIds, userRepository.getOne(requesterId)));
+      entityManager.clear();
+      assertEquals(toFields(getBookBases(bookBaseIds, requesterId)), views);
+      entityManager.clear();
+    }
+  }
+
+  @Test
+  void keepsOrderAndSkipsMissingIds() throws JsonProcessingException {
+    List<Long> ids = List.of(ownerId, 999999L, adminId, ownerId);
+    User admin = userRepository.getOne(adminId);
+    assertEquals(List.of(ownerId, adminId, ownerId),
+        userService.getViews(ids, admin).stream()
+            .map(view -> view.getId()).collect(Collectors.toList()));
+    assertEquals(List.of(), userService.getViews(List.of(), admin));
+
+    List<Long> bookIds = List.of(bookBaseIds.get(1), 999999L,
+        bookBaseIds.get(0));
+    assertEquals(toFields(getBookBases(List.of(bookBaseIds.get(1),
+        bookBaseIds.get(0)), adminId)),
+        toFields(bookBaseService.getViews(bookIds,
+            userRepository.getOne(adminId))));
+  }
+
+  // Пользователи в JSON списка до проекций: приватные книги видны модераторам
+  private List<User> getUsers(List<Long> ids, Long requesterId) {
+    User requester = userRepository.getOne(requesterId);
+    List<User> res = userRepository.findAllByIdInOrder(ids);
+    if (!requester.getRole().hasModeratorPermits()) {
+      res.forEach(User::switchExchangeListToPublic);
+    }
+    return res;
+  }
+
+  // Книги в JSON списка до проекций
+  private List<BookBase> getBookBases(List<Long> ids, Long requesterId) {
+    User requester = userRepository.getOne(requesterId);
+    List<BookBase> res = bookBaseRepository.findAllByIdInOrder(ids);
+    res.forEach(b -> bookBaseService.hidePrivateBooks(b, requester));
+    return res;
+  }
+
+  /* Поля записей списка из его JSON. Порядок полей в JSON сущностей
+     задается порядком методов класса, а порядок id в коллекциях сущностей
+     (без ORDER BY) - бд, поэтому сравниваются значения полей, а списки id -
+     отсортированными */
+  private List<Map<String, Object>> toFields(Object value)
+      throws JsonProcessingException {
+    List<Map<String, Object>> res = objectMapper.readValue(
+        objectMapper.writeValueAsString(value), new TypeReference<>() {
+        });
+    for (Map<String, Object> fields : res) {
+      fields.replaceAll((name, field) -> field instanceof List
+          ? ((List<?>) field).stream().map(id -> ((Number) id).longValue())
+          .sorted().collect(Collectors.toList()) : field);
+    }
+    return res;
+  }
+
+  private User persist(User user) {
+    entityManager.persist(user);
+    userIds.add(user.getId());
+    return user;
+  }
+
+  private BookBase persist(BookBase bookBase) {
+    entityManager.persist(bookBase);
+    bookBaseIds.add(bookBase.getId());
+    return bookBase;
+  }
+}